@@ -0,0 +1,50 @@
+package org.globsframework.csv;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+a condition on the raw value of a column (trimmed, null if empty), see ImportFile.filter :
+lines are rejected before any glob is created.
+ */
+public interface ColumnFilter {
+
+    boolean accept(String value);
+
+    static ColumnFilter equalsTo(String expected) {
+        return expected::equals;
+    }
+
+    static ColumnFilter in(Collection<String> values) {
+        Set<String> set = new HashSet<>(values);
+        return set::contains;
+    }
+
+    static ColumnFilter startsWith(String prefix) {
+        return value -> value != null && value.startsWith(prefix);
+    }
+
+    // min and max included, values that are not numbers are rejected.
+    static ColumnFilter between(double min, double max) {
+        return value -> {
+            if (value == null) {
+                return false;
+            }
+            try {
+                double d = Double.parseDouble(value);
+                return d >= min && d <= max;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        };
+    }
+
+    static ColumnFilter isNull() {
+        return value -> value == null;
+    }
+
+    static ColumnFilter notNull() {
+        return value -> value != null;
+    }
+}
@@ -0,0 +1,422 @@
+package org.globsframework.csv;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.fields.*;
+import org.globsframework.core.model.Glob;
+import org.globsframework.core.model.MutableGlob;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+a block of imported lines stored by column: primitive arrays with a null bitmap for numbers, dates and booleans,
+dictionary encoded values for strings.
+Dates are stored as epoch day and date times as epoch second and nano of second (restored in the zone of their line).
+ */
+public class ColumnarBatch {
+    private final GlobType type;
+    private final int capacity;
+    private final Column[] columns;
+    private int size;
+
+    public ColumnarBatch(GlobType type, int capacity) {
+        this.type = type;
+        this.capacity = capacity;
+        Field[] fields = type.getFields();
+        columns = new Column[fields.length];
+        for (Field field : fields) {
+            Column column = field.safeAccept(new ColumnFactory(capacity)).column;
+            columns[field.getIndex()] = column != null ? column : new ObjectColumn(field, capacity);
+        }
+    }
+
+    public GlobType getType() {
+        return type;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    int addRow() {
+        return size++;
+    }
+
+    public boolean isSet(Field field, int row) {
+        return columns[field.getIndex()].isSet(row);
+    }
+
+    public IntColumn getColumn(IntegerField field) {
+        return (IntColumn) columns[field.getIndex()];
+    }
+
+    public LongColumn getColumn(LongField field) {
+        return (LongColumn) columns[field.getIndex()];
+    }
+
+    public DoubleColumn getColumn(DoubleField field) {
+        return (DoubleColumn) columns[field.getIndex()];
+    }
+
+    public BooleanColumn getColumn(BooleanField field) {
+        return (BooleanColumn) columns[field.getIndex()];
+    }
+
+    public DateColumn getColumn(DateField field) {
+        return (DateColumn) columns[field.getIndex()];
+    }
+
+    public DateTimeColumn getColumn(DateTimeField field) {
+        return (DateTimeColumn) columns[field.getIndex()];
+    }
+
+    public StringColumn getColumn(StringField field) {
+        return (StringColumn) columns[field.getIndex()];
+    }
+
+    void set(IntegerField field, int row, int value) {
+        getColumn(field).set(row, value);
+    }
+
+    void set(LongField field, int row, long value) {
+        getColumn(field).set(row, value);
+    }
+
+    void set(DoubleField field, int row, double value) {
+        getColumn(field).set(row, value);
+    }
+
+    void set(BooleanField field, int row, boolean value) {
+        getColumn(field).set(row, value);
+    }
+
+    void set(DateField field, int row, LocalDate value) {
+        getColumn(field).set(row, value);
+    }
+
+    void set(DateTimeField field, int row, ZonedDateTime value) {
+        getColumn(field).set(row, value);
+    }
+
+    void set(StringField field, int row, String value) {
+        getColumn(field).set(row, value);
+    }
+
+    void set(StringArrayField field, int row, String[] value) {
+        ((ObjectColumn) columns[field.getIndex()]).set(row, value);
+    }
+
+    // materialize a line
+    public Glob getGlob(int row) {
+        if (row >= size) {
+            throw new IndexOutOfBoundsException(row + " >= " + size);
+        }
+        MutableGlob glob = type.instantiate();
+        for (Column column : columns) {
+            if (column.isSet(row)) {
+                column.copyTo(glob, row);
+            }
+        }
+        return glob;
+    }
+
+    public static abstract class Column {
+        final Field field;
+        private final long[] notNull;
+
+        Column(Field field, int capacity) {
+            this.field = field;
+            notNull = new long[(capacity + 63) >>> 6];
+        }
+
+        public boolean isSet(int row) {
+            return (notNull[row >>> 6] & (1L << row)) != 0;
+        }
+
+        void markSet(int row) {
+            notNull[row >>> 6] |= 1L << row;
+        }
+
+        abstract void copyTo(MutableGlob glob, int row);
+    }
+
+    public static class IntColumn extends Column {
+        private final int[] values;
+
+        IntColumn(IntegerField field, int capacity) {
+            super(field, capacity);
+            values = new int[capacity];
+        }
+
+        public int get(int row) {
+            return values[row];
+        }
+
+        public int[] values() {
+            return values;
+        }
+
+        void set(int row, int value) {
+            values[row] = value;
+            markSet(row);
+        }
+
+        void copyTo(MutableGlob glob, int row) {
+            glob.set((IntegerField) field, values[row]);
+        }
+    }
+
+    public static class LongColumn extends Column {
+        private final long[] values;
+
+        LongColumn(LongField field, int capacity) {
+            super(field, capacity);
+            values = new long[capacity];
+        }
+
+        public long get(int row) {
+            return values[row];
+        }
+
+        public long[] values() {
+            return values;
+        }
+
+        void set(int row, long value) {
+            values[row] = value;
+            markSet(row);
+        }
+
+        void copyTo(MutableGlob glob, int row) {
+            glob.set((LongField) field, values[row]);
+        }
+    }
+
+    public static class DoubleColumn extends Column {
+        private final double[] values;
+
+        DoubleColumn(DoubleField field, int capacity) {
+            super(field, capacity);
+            values = new double[capacity];
+        }
+
+        public double get(int row) {
+            return values[row];
+        }
+
+        public double[] values() {
+            return values;
+        }
+
+        void set(int row, double value) {
+            values[row] = value;
+            markSet(row);
+        }
+
+        void copyTo(MutableGlob glob, int row) {
+            glob.set((DoubleField) field, values[row]);
+        }
+    }
+
+    public static class BooleanColumn extends Column {
+        private final long[] values;
+
+        BooleanColumn(BooleanField field, int capacity) {
+            super(field, capacity);
+            values = new long[(capacity + 63) >>> 6];
+        }
+
+        public boolean get(int row) {
+            return (values[row >>> 6] & (1L << row)) != 0;
+        }
+
+        void set(int row, boolean value) {
+            if (value) {
+                values[row >>> 6] |= 1L << row;
+            }
+            markSet(row);
+        }
+
+        void copyTo(MutableGlob glob, int row) {
+            glob.set((BooleanField) field, get(row));
+        }
+    }
+
+    public static class DateColumn extends Column {
+        private final int[] epochDays;
+
+        DateColumn(DateField field, int capacity) {
+            super(field, capacity);
+            epochDays = new int[capacity];
+        }
+
+        public int getEpochDay(int row) {
+            return epochDays[row];
+        }
+
+        public int[] values() {
+            return epochDays;
+        }
+
+        void set(int row, LocalDate value) {
+            epochDays[row] = (int) value.toEpochDay();
+            markSet(row);
+        }
+
+        void copyTo(MutableGlob glob, int row) {
+            glob.set((DateField) field, LocalDate.ofEpochDay(epochDays[row]));
+        }
+    }
+
+    public static class DateTimeColumn extends Column {
+        private final long[] epochSeconds;
+        private final int[] nanos;
+        private final ZoneId[] zones;
+
+        DateTimeColumn(DateTimeField field, int capacity) {
+            super(field, capacity);
+            epochSeconds = new long[capacity];
+            nanos = new int[capacity];
+            zones = new ZoneId[capacity];
+        }
+
+        public long getEpochSecond(int row) {
+            return epochSeconds[row];
+        }
+
+        public int getNano(int row) {
+            return nanos[row];
+        }
+
+        public ZoneId getZone(int row) {
+            return zones[row];
+        }
+
+        public long getEpochMilli(int row) {
+            return epochSeconds[row] * 1000 + nanos[row] / 1_000_000;
+        }
+
+        public long[] values() {
+            return epochSeconds;
+        }
+
+        void set(int row, ZonedDateTime value) {
+            Instant instant = value.toInstant();
+            epochSeconds[row] = instant.getEpochSecond();
+            nanos[row] = instant.getNano();
+            zones[row] = value.getZone();
+            markSet(row);
+        }
+
+        void copyTo(MutableGlob glob, int row) {
+            glob.set((DateTimeField) field, ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds[row], nanos[row]), zones[row]));
+        }
+    }
+
+    public static class StringColumn extends Column {
+        private final int[] codes;
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Integer> valueToCode = new HashMap<>();
+
+        StringColumn(StringField field, int capacity) {
+            super(field, capacity);
+            codes = new int[capacity];
+        }
+
+        public int getCode(int row) {
+            return codes[row];
+        }
+
+        public int[] codes() {
+            return codes;
+        }
+
+        public List<String> getDictionary() {
+            return dictionary;
+        }
+
+        public String get(int row) {
+            return isSet(row) ? dictionary.get(codes[row]) : null;
+        }
+
+        void set(int row, String value) {
+            Integer code = valueToCode.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                valueToCode.put(value, code);
+            }
+            codes[row] = code;
+            markSet(row);
+        }
+
+        void copyTo(MutableGlob glob, int row) {
+            glob.set((StringField) field, dictionary.get(codes[row]));
+        }
+    }
+
+    static class ObjectColumn extends Column {
+        private final Object[] values;
+
+        ObjectColumn(Field field, int capacity) {
+            super(field, capacity);
+            values = new Object[capacity];
+        }
+
+        void set(int row, Object value) {
+            values[row] = value;
+            markSet(row);
+        }
+
+        void copyTo(MutableGlob glob, int row) {
+            glob.setValue(field, values[row]);
+        }
+    }
+
+    private static class ColumnFactory extends FieldVisitor.AbstractFieldVisitor {
+        private final int capacity;
+        Column column;
+
+        ColumnFactory(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public void visitInteger(IntegerField field) {
+            column = new IntColumn(field, capacity);
+        }
+
+        public void visitLong(LongField field) {
+            column = new LongColumn(field, capacity);
+        }
+
+        public void visitDouble(DoubleField field) {
+            column = new DoubleColumn(field, capacity);
+        }
+
+        public void visitBoolean(BooleanField field) {
+            column = new BooleanColumn(field, capacity);
+        }
+
+        public void visitDate(DateField field) {
+            column = new DateColumn(field, capacity);
+        }
+
+        public void visitDateTime(DateTimeField field) {
+            column = new DateTimeColumn(field, capacity);
+        }
+
+        public void visitString(StringField field) {
+            column = new StringColumn(field, capacity);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package org.globsframework.csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+key to value table for big mappings: keys are sorted and packed, with the values, in two char arrays
+(offsets in int arrays); a lookup is a binary search. The same layout is used in the file written by write,
+which is memory mapped by loadCompact. Tables are shared by path until the file change; they stay loaded
+(and mapped) until release or releaseAll is called.
+ */
+public class CompactMappingTable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactMappingTable.class);
+    private static final int MAGIC = 0x474D4150;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final Map<String, Loaded> TABLES = new ConcurrentHashMap<>();
+    private final int size;
+    private final IntBuffer keyOffsets;
+    private final IntBuffer valueOffsets;
+    private final CharBuffer keys;
+    private final CharBuffer values;
+
+    private CompactMappingTable(int size, IntBuffer keyOffsets, IntBuffer valueOffsets, CharBuffer keys, CharBuffer values) {
+        this.size = size;
+        this.keyOffsets = keyOffsets;
+        this.valueOffsets = valueOffsets;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String get(String key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareKey(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int from = valueOffsets.get(mid);
+                return values.subSequence(from, valueOffsets.get(mid + 1)).toString();
+            }
+        }
+        return null;
+    }
+
+    private int compareKey(int index, String key) {
+        int from = keyOffsets.get(index);
+        int length = keyOffsets.get(index + 1) - from;
+        int min = Math.min(length, key.length());
+        for (int i = 0; i < min; i++) {
+            char c = keys.get(from + i);
+            char k = key.charAt(i);
+            if (c != k) {
+                return c - k;
+            }
+        }
+        return length - key.length();
+    }
+
+    // the first two columns are the key and the value, on duplicate key the last line win.
+    public static CompactMappingTable loadCsv(Path path, char separator, boolean withHeader) {
+        return getOrLoad("csv:" + separator + withHeader + ":" + path.toAbsolutePath(), path, () -> parseCsv(path, separator, withHeader));
+    }
+
+    public static CompactMappingTable loadCompact(Path path) {
+        return getOrLoad("compact:" + path.toAbsolutePath(), path, () -> map(path));
+    }
+
+    // entries with a null key or value are not a mapping and are skipped
+    public static CompactMappingTable create(Map<String, String> mapping) {
+        String[] keys = mapping.entrySet().stream()
+                .filter(e -> e.getKey() != null && e.getValue() != null)
+                .map(Map.Entry::getKey)
+                .toArray(String[]::new);
+        Arrays.sort(keys);
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = mapping.get(keys[i]);
+        }
+        return pack(keys, values);
+    }
+
+    // the tables loaded from this path are dropped, the next load read the file again
+    public static void release(Path path) {
+        String suffix = ":" + path.toAbsolutePath();
+        TABLES.keySet().removeIf(key -> key.endsWith(suffix));
+    }
+
+    public static void releaseAll() {
+        TABLES.clear();
+    }
+
+    public void write(Path path) throws IOException {
+        int keyLength = keyOffsets.get(size);
+        int valueLength = valueOffsets.get(size);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(size);
+            output.writeInt(keyLength);
+            output.writeInt(valueLength);
+            for (int i = 0; i <= size; i++) {
+                output.writeInt(keyOffsets.get(i));
+            }
+            for (int i = 0; i <= size; i++) {
+                output.writeInt(valueOffsets.get(i));
+            }
+            for (int i = 0; i < keyLength; i++) {
+                output.writeChar(keys.get(i));
+            }
+            for (int i = 0; i < valueLength; i++) {
+                output.writeChar(values.get(i));
+            }
+        }
+    }
+
+    interface Loader {
+        CompactMappingTable load() throws IOException;
+    }
+
+    private record Loaded(long lastModified, CompactMappingTable table) {
+    }
+
+    private static CompactMappingTable getOrLoad(String key, Path path, Loader loader) {
+        try {
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            return TABLES.compute(key, (k, loaded) -> {
+                if (loaded != null && loaded.lastModified == lastModified) {
+                    return loaded;
+                }
+                try {
+                    CompactMappingTable table = loader.load();
+                    LOGGER.info(table.size + " mappings loaded from " + path);
+                    return new Loaded(lastModified, table);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).table;
+        } catch (IOException | UncheckedIOException e) {
+            String message = "Fail to load mapping from " + path;
+            LOGGER.error(message, e);
+            throw new RuntimeException(message, e);
+        }
+    }
+
+    private static CompactMappingTable parseCsv(Path path, char separator, boolean withHeader) throws IOException {
+        Map<String, String> mapping = new HashMap<>();
+        CSVFormat format = CSVFormat.Builder.create(CSVFormat.DEFAULT)
+                .setDelimiter(separator)
+                .setEscape('\\')
+                .build();
+        try (Reader reader = ImportFile.createReaderWithBomCheck(Files.newInputStream(path), StandardCharsets.UTF_8);
+             CSVParser parser = format.parse(reader)) {
+            boolean first = true;
+            for (CSVRecord record : parser) {
+                if (first && withHeader) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                if (record.size() >= 2) {
+                    mapping.put(record.get(0), record.get(1));
+                }
+            }
+        }
+        return create(mapping);
+    }
+
+    private static CompactMappingTable pack(String[] keys, String[] values) {
+        int[] keyOffsets = new int[keys.length + 1];
+        int[] valueOffsets = new int[keys.length + 1];
+        StringBuilder keyChars = new StringBuilder();
+        StringBuilder valueChars = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            keyChars.append(keys[i]);
+            keyOffsets[i + 1] = keyChars.length();
+            valueChars.append(values[i]);
+            valueOffsets[i + 1] = valueChars.length();
+        }
+        char[] keyArray = new char[keyChars.length()];
+        keyChars.getChars(0, keyArray.length, keyArray, 0);
+        char[] valueArray = new char[valueChars.length()];
+        valueChars.getChars(0, valueArray.length, valueArray, 0);
+        return new CompactMappingTable(keys.length, IntBuffer.wrap(keyOffsets), IntBuffer.wrap(valueOffsets),
+                CharBuffer.wrap(keyArray), CharBuffer.wrap(valueArray));
+    }
+
+    private static CompactMappingTable map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a mapping table " + path);
+            }
+            int size = buffer.getInt(8);
+            int keyLength = buffer.getInt(12);
+            int valueLength = buffer.getInt(16);
+            int offsetsBytes = (size + 1) * 4;
+            int keyOffsetsStart = HEADER_SIZE;
+            int valueOffsetsStart = keyOffsetsStart + offsetsBytes;
+            int keysStart = valueOffsetsStart + offsetsBytes;
+            int valuesStart = keysStart + keyLength * 2;
+            return new CompactMappingTable(size,
+                    buffer.slice(keyOffsetsStart, offsetsBytes).asIntBuffer(),
+                    buffer.slice(valueOffsetsStart, offsetsBytes).asIntBuffer(),
+                    buffer.slice(keysStart, keyLength * 2).asCharBuffer(),
+                    buffer.slice(valuesStart, valueLength * 2).asCharBuffer());
+        }
+    }
+}
@@ -15,8 +15,8 @@ import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -97,9 +97,25 @@ public class ComplexImporter {
         return new ConsumerWithCurrent(consumer, build);
     }
 
+    // lines of the same root are not expected to be contiguous
+    ConsumerWithCurrent createUnsorted(Consumer<Glob> consumer, long memoryBudget) {
+        CompositeState build = (CompositeState) CompositeState.build(target, csvType);
+        return new UnsortedGroupingConsumer(consumer, build, memoryBudget);
+    }
+
+    // input must be grouped by root; roots are built on threads workers.
+    ConsumerWithCurrent createParallel(Consumer<Glob> consumer, int threads) {
+        CompositeState splitter = (CompositeState) CompositeState.build(target, csvType);
+        return new ParallelGroupingConsumer(consumer, () -> CompositeState.build(target, csvType),
+                splitter.fieldMapper, target, threads);
+    }
+
     interface State {
         Glob onNewLine(Glob line);
 
+        // push pending children in the current glob
+        void flush();
+
         void reset();
     }
 
@@ -107,7 +123,7 @@ public class ComplexImporter {
         Object convert(String value);
     }
 
-    static class ConsumerWithCurrent implements Consumer<Glob> {
+    static class ConsumerWithCurrent implements Consumer<Glob>, AutoCloseable {
         final Consumer<Glob> consumer;
         private final State build;
         private Glob current = null;
@@ -128,17 +144,32 @@ public class ComplexImporter {
         }
 
         void end() {
+            build.flush();
             if (current != null) {
                 consumer.accept(current);
                 current = null;
             }
         }
+
+        // release the resources if the read fail before end()
+        public void close() {
+        }
     }
 
     record Attr(Field array, State state) {
     }
 
     record LineToTargetField(Field from, Field to, ConvertFromStr convert) {
+        // the line may already be typed (see FieldMappingType.targetType)
+        Object convertValue(Object value) {
+            if (value instanceof String str) {
+                return convert.convert(str);
+            }
+            if (from.getDataType() == to.getDataType()) {
+                return value;
+            }
+            return convert.convert(String.valueOf(value));
+        }
     }
 
     static class FieldMapper {
@@ -148,22 +179,28 @@ public class ComplexImporter {
             fields.add(new LineToTargetField(fromField, toField, convert));
         }
 
-        boolean isSame(Glob current, Glob line) {
-            for (LineToTargetField field : fields) {
-                if (!field.to.valueEqual(current.getValue(field.to), field.convert.convert((String) line.getValue(field.from)))) {
+        // the raw values of the line that open the group are compared first, the conversion is done only if they differ.
+        boolean isSame(Glob current, Object[] raw, Glob line) {
+            for (int i = 0; i < raw.length; i++) {
+                LineToTargetField field = fields.get(i);
+                Object value = line.getValue(field.from);
+                if (!Objects.equals(raw[i], value) &&
+                    !field.to.valueEqual(current.getValue(field.to), field.convertValue(value))) {
                     return false;
                 }
             }
             return true;
         }
 
-        boolean copy(MutableGlob to, Glob from) {
+        boolean copy(MutableGlob to, Object[] raw, Glob from) {
             boolean hasChange = false;
-            for (LineToTargetField field : fields) {
+            for (int i = 0; i < raw.length; i++) {
+                LineToTargetField field = fields.get(i);
                 Object value = from.getValue(field.from);
+                raw[i] = value;
                 if (value != null) {
                     hasChange = true;
-                    to.setValue(field.to, field.convert.convert((String) value));
+                    to.setValue(field.to, field.convertValue(value));
                 }
             }
             return hasChange;
@@ -175,12 +212,20 @@ public class ComplexImporter {
         GlobType type;
         List<Attr> attrs;
         MutableGlob current;
+        private Object[] currentRaw;
+        private final GlobArrayBuffer[] children;
         private boolean wasReturn;
 
         public CompositeState(FieldMapper fieldMapper, GlobType type, List<Attr> attrs) {
             this.fieldMapper = fieldMapper;
             this.type = type;
             this.attrs = attrs;
+            children = new GlobArrayBuffer[attrs.size()];
+            for (int i = 0; i < children.length; i++) {
+                if (attrs.get(i).array instanceof GlobArrayField) {
+                    children[i] = new GlobArrayBuffer();
+                }
+            }
         }
 
         public static State build(GlobType to, GlobType from) {
@@ -208,22 +253,24 @@ public class ComplexImporter {
 
         public Glob onNewLine(Glob line) {
             boolean hasChange = false;
-            if (current == null || !fieldMapper.isSame(current, line)) {
+            if (current == null || !fieldMapper.isSame(current, currentRaw, line)) {
+                flush();
                 current = type.instantiate();
                 wasReturn = false;
                 for (Attr attr : attrs) {
                     attr.state.reset();
                 }
-                hasChange = fieldMapper.copy(current, line);
+                if (currentRaw == null) {
+                    currentRaw = new Object[fieldMapper.fields.size()];
+                }
+                hasChange = fieldMapper.copy(current, currentRaw, line);
             }
-            for (Attr attr : attrs) {
+            for (int i = 0; i < children.length; i++) {
+                Attr attr = attrs.get(i);
                 Glob glob = attr.state.onNewLine(line);
                 if (glob != null) {
-                    if (attr.array instanceof GlobArrayField arrayField) {
-                        Glob[] d = current.getOrEmpty(arrayField);
-                        d = Arrays.copyOf(d, d.length + 1);
-                        d[d.length - 1] = glob;
-                        current.set(arrayField, d);
+                    if (children[i] != null) {
+                        children[i].add(glob);
                         hasChange = true;
                     } else {
                         GlobField field = (GlobField) attr.array;
@@ -241,7 +288,20 @@ public class ComplexImporter {
             }
         }
 
+        public void flush() {
+            if (current == null) {
+                return;
+            }
+            for (int i = 0; i < children.length; i++) {
+                attrs.get(i).state.flush();
+                if (children[i] != null && !children[i].isEmpty()) {
+                    current.set((GlobArrayField) attrs.get(i).array, children[i].take());
+                }
+            }
+        }
+
         public void reset() {
+            flush();
             for (Attr attr : attrs) {
                 attr.state.reset();
             }
@@ -0,0 +1,364 @@
+package org.globsframework.csv;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.*;
+import java.util.*;
+
+/*
+detect separator, quote, charset and header on a bounded prefix of the stream.
+The returned stream replay the prefix so the input is read only once.
+ */
+public class CsvSniffer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CsvSniffer.class);
+    private static final char[] SEPARATORS = {',', ';', '\t', '|'};
+    private int maxBytes = 64 * 1024;
+    private int maxLines = 100;
+    private Charset defaultCharset = StandardCharsets.UTF_8;
+
+    public CsvSniffer withMaxBytes(int maxBytes) {
+        this.maxBytes = maxBytes;
+        return this;
+    }
+
+    public CsvSniffer withMaxLines(int maxLines) {
+        this.maxLines = maxLines;
+        return this;
+    }
+
+    public CsvSniffer withDefaultCharset(Charset defaultCharset) {
+        this.defaultCharset = defaultCharset;
+        return this;
+    }
+
+    public Result sniff(InputStream inputStream) throws IOException {
+        byte[] prefix = inputStream.readNBytes(maxBytes);
+        InputStream replay = new SequenceInputStream(new ByteArrayInputStream(prefix), inputStream);
+        boolean truncated = prefix.length == maxBytes;
+
+        Charset charset = defaultCharset;
+        int bomLength = 0;
+        if (startWith(prefix, 0xEF, 0xBB, 0xBF)) {
+            charset = StandardCharsets.UTF_8;
+            bomLength = 3;
+        } else if (startWith(prefix, 0x00, 0x00, 0xFE, 0xFF)) {
+            charset = Charset.forName("UTF-32BE");
+            bomLength = 4;
+        } else if (startWith(prefix, 0xFF, 0xFE, 0x00, 0x00)) {
+            charset = Charset.forName("UTF-32LE");
+            bomLength = 4;
+        } else if (startWith(prefix, 0xFE, 0xFF)) {
+            charset = StandardCharsets.UTF_16BE;
+            bomLength = 2;
+        } else if (startWith(prefix, 0xFF, 0xFE)) {
+            charset = StandardCharsets.UTF_16LE;
+            bomLength = 2;
+        }
+        String text = decode(prefix, bomLength, charset, truncated);
+        if (text == null) {
+            LOGGER.info("Content is not valid " + charset + ", fall back to " + StandardCharsets.ISO_8859_1);
+            charset = StandardCharsets.ISO_8859_1;
+            text = decode(prefix, bomLength, charset, truncated);
+        }
+
+        char quote = detectQuote(text);
+        List<String> records = splitRecords(text, quote, truncated);
+        if (records.isEmpty()) {
+            LOGGER.warn("Empty file");
+            return new Result(charset, ',', quote, false, 0, List.of(), replay);
+        }
+        char separator = detectSeparator(records, quote);
+        List<List<String>> rows = new ArrayList<>();
+        for (String record : records) {
+            rows.add(splitFields(record, separator, quote));
+        }
+        int fieldCount = mostFrequentSize(rows);
+        boolean hasHeader = detectHeader(rows);
+        LOGGER.info("Found separator '" + separator + "' quote '" + quote + "' charset " + charset +
+                    " header " + hasHeader + " on " + rows.size() + " lines");
+        return new Result(charset, separator, quote, hasHeader, fieldCount, hasHeader ? rows.get(0) : List.of(), replay);
+    }
+
+    private static boolean startWith(byte[] data, int... bom) {
+        if (data.length < bom.length) {
+            return false;
+        }
+        for (int i = 0; i < bom.length; i++) {
+            if ((data[i] & 0xFF) != bom[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // return null if the data is not valid for the charset
+    private static String decode(byte[] prefix, int offset, Charset charset, boolean truncated) {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer in = ByteBuffer.wrap(prefix, offset, prefix.length - offset);
+        CharBuffer out = CharBuffer.allocate((int) ((prefix.length - offset) * (double) decoder.maxCharsPerByte()) + 1);
+        CoderResult result = decoder.decode(in, out, !truncated);
+        if (result.isError()) {
+            return null;
+        }
+        out.flip();
+        return out.toString();
+    }
+
+    private static char detectQuote(String text) {
+        int doubleQuote = 0;
+        int simpleQuote = 0;
+        char previous = '\n';
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isBoundary(previous)) {
+                if (c == '"') {
+                    doubleQuote++;
+                } else if (c == '\'') {
+                    simpleQuote++;
+                }
+            }
+            previous = c;
+        }
+        return simpleQuote > doubleQuote ? '\'' : '"';
+    }
+
+    private static boolean isBoundary(char c) {
+        if (c == '\n' || c == '\r') {
+            return true;
+        }
+        for (char separator : SEPARATORS) {
+            if (c == separator) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<String> splitRecords(String text, char quote, boolean truncated) {
+        List<String> records = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuote = false;
+        for (int i = 0; i < text.length() && records.size() < maxLines; i++) {
+            char c = text.charAt(i);
+            if (c == quote) {
+                inQuote = !inQuote;
+            }
+            if (!inQuote && (c == '\n' || c == '\r')) {
+                if (!current.toString().isBlank()) {
+                    records.add(current.toString());
+                }
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        // last record may be cut in the middle
+        if (!truncated && records.size() < maxLines && !current.toString().isBlank()) {
+            records.add(current.toString());
+        }
+        return records;
+    }
+
+    private static char detectSeparator(List<String> records, char quote) {
+        char best = 0;
+        double bestScore = 0;
+        int bestMode = 0;
+        for (char separator : SEPARATORS) {
+            Map<Integer, Integer> countBySize = new HashMap<>();
+            for (String record : records) {
+                countBySize.merge(count(record, separator, quote), 1, Integer::sum);
+            }
+            int mode = 0;
+            int modeCount = 0;
+            for (Map.Entry<Integer, Integer> entry : countBySize.entrySet()) {
+                if (entry.getKey() > 0 && (entry.getValue() > modeCount || (entry.getValue() == modeCount && entry.getKey() > mode))) {
+                    mode = entry.getKey();
+                    modeCount = entry.getValue();
+                }
+            }
+            double score = (double) modeCount / records.size();
+            if (score > bestScore || (score == bestScore && mode > bestMode)) {
+                best = separator;
+                bestScore = score;
+                bestMode = mode;
+            }
+        }
+        if (best == 0) {
+            LOGGER.info("No separator found within ,;\\t| : file with one column");
+            return ',';
+        }
+        return best;
+    }
+
+    private static int count(String record, char separator, char quote) {
+        int count = 0;
+        boolean inQuote = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (c == quote) {
+                inQuote = !inQuote;
+            } else if (c == separator && !inQuote) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static List<String> splitFields(String record, char separator, char quote) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuote = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (c == quote) {
+                if (inQuote && i + 1 < record.length() && record.charAt(i + 1) == quote) {
+                    current.append(c);
+                    i++;
+                } else {
+                    inQuote = !inQuote;
+                }
+            } else if (c == separator && !inQuote) {
+                fields.add(current.toString().trim());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString().trim());
+        return fields;
+    }
+
+    private static int mostFrequentSize(List<List<String>> rows) {
+        Map<Integer, Integer> countBySize = new HashMap<>();
+        for (List<String> row : rows) {
+            countBySize.merge(row.size(), 1, Integer::sum);
+        }
+        return countBySize.entrySet().stream()
+                .max(Map.Entry.<Integer, Integer>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .orElse(0);
+    }
+
+    /*
+    each column vote: if the values below the first line share a type (numeric or fix length) and the first
+    line does not, it is probably a header.
+     */
+    private static boolean detectHeader(List<List<String>> rows) {
+        List<String> first = rows.get(0);
+        if (rows.size() == 1) {
+            return true;
+        }
+        int vote = 0;
+        for (int column = 0; column < first.size(); column++) {
+            boolean allNumeric = true;
+            int length = -1;
+            boolean sameLength = true;
+            int valueCount = 0;
+            for (int i = 1; i < rows.size(); i++) {
+                List<String> row = rows.get(i);
+                if (column >= row.size() || row.get(column).isEmpty()) {
+                    continue;
+                }
+                String value = row.get(column);
+                valueCount++;
+                allNumeric &= isNumeric(value);
+                if (length == -1) {
+                    length = value.length();
+                } else {
+                    sameLength &= length == value.length();
+                }
+            }
+            if (valueCount == 0) {
+                continue;
+            }
+            String header = first.get(column);
+            if (allNumeric) {
+                vote += isNumeric(header) ? -1 : 1;
+            } else if (sameLength) {
+                vote += header.length() != length ? 1 : -1;
+            }
+        }
+        if (vote != 0) {
+            return vote > 0;
+        }
+        Set<String> names = new HashSet<>();
+        for (String s : first) {
+            if (s.isEmpty() || isNumeric(s) || !names.add(s)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNumeric(String value) {
+        boolean hasDigit = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (!(c == '.' || c == ',' || ((c == '-' || c == '+') && i == 0))) {
+                return false;
+            }
+        }
+        return hasDigit;
+    }
+
+    public static class Result {
+        private final Charset charset;
+        private final char separator;
+        private final char quoteChar;
+        private final boolean hasHeader;
+        private final int fieldCount;
+        private final List<String> header;
+        private final InputStream inputStream;
+
+        Result(Charset charset, char separator, char quoteChar, boolean hasHeader, int fieldCount,
+               List<String> header, InputStream inputStream) {
+            this.charset = charset;
+            this.separator = separator;
+            this.quoteChar = quoteChar;
+            this.hasHeader = hasHeader;
+            this.fieldCount = fieldCount;
+            this.header = header;
+            this.inputStream = inputStream;
+        }
+
+        public Charset getCharset() {
+            return charset;
+        }
+
+        public char getSeparator() {
+            return separator;
+        }
+
+        public char getQuoteChar() {
+            return quoteChar;
+        }
+
+        public boolean hasHeader() {
+            return hasHeader;
+        }
+
+        public int getFieldCount() {
+            return fieldCount;
+        }
+
+        public List<String> getHeader() {
+            return header;
+        }
+
+        // the full content, sniffed prefix included.
+        public InputStream getInputStream() {
+            return inputStream;
+        }
+    }
+}
@@ -1,5 +1,12 @@
 package org.globsframework.csv;
 
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.globsframework.core.metamodel.GlobType;
 import org.globsframework.core.metamodel.annotations.IsDate;
 import org.globsframework.core.metamodel.fields.*;
@@ -10,14 +17,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.Format;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -36,6 +57,8 @@ public class ExportBySize {
     private Set<Field> fieldsToExclude = new HashSet<>();
     private Set<String> filter = new HashSet<>();
     private String name;
+    private int excelRowWindow = 100;
+    private ZoneId excelZoneId;
 
     public ExportBySize() {
     }
@@ -126,6 +149,120 @@ public class ExportBySize {
         return glob -> exportGlob.accept(glob, writer);
     }
 
+    public ExportBySize withExcelRowWindow(int excelRowWindow) {
+        this.excelRowWindow = excelRowWindow;
+        return this;
+    }
+
+    // excel date times have no zone: they are written in this zone (by default, the time of the value in its own zone).
+    public ExportBySize withExcelZoneId(ZoneId excelZoneId) {
+        this.excelZoneId = excelZoneId;
+        return this;
+    }
+
+    public void exportExcel(Stream<Glob> globStream, OutputStream outputStream) throws IOException {
+        exportExcel(null, globStream, outputStream);
+    }
+
+    // only excelRowWindow rows are kept in memory, older rows are flushed to a temporary file by poi.
+    public void exportExcel(GlobType headerType, Stream<Glob> globStream, OutputStream outputStream) throws IOException {
+        ExportGlob excelExportGlob = new ExportGlob(this, field -> Padding.NOPADDING);
+        SXSSFWorkbook workbook = new SXSSFWorkbook(excelRowWindow);
+        try {
+            ExcelCellWriter cellWriter = new ExcelCellWriter(workbook, workbook.createSheet(), excelZoneId);
+            if (headerType != null) {
+                excelExportGlob.exportHeader(headerType, cellWriter);
+            }
+            globStream.forEach(glob -> excelExportGlob.accept(glob, cellWriter));
+            workbook.write(outputStream);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /*
+    fix size export: every line has the same length, so lines are formatted by threads workers
+    and written directly at their position in the preallocated file.
+    The charset must encode the exported values on one byte per char (checked on each line).
+     */
+    public void exportFixedSize(List<Glob> globs, Path path, Charset charset, int threads) throws IOException {
+        if (withPadding == null || withSeparator) {
+            String message = "Positional export expect a padding without separator";
+            LOGGER.error(message);
+            throw new RuntimeException(message);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (globs.isEmpty()) {
+                return;
+            }
+            GlobType type = globs.get(0).getType();
+            int recordSize = new ExportGlob(this, new RealPaddingFactory(withPadding)).getWriteObject(type).getRecordSize();
+            if (recordSize < 0) {
+                String message = "No fix size for " + type.getName();
+                LOGGER.error(message);
+                throw new RuntimeException(message);
+            }
+            int recordLength = recordSize + 1;
+            // preallocate
+            channel.write(ByteBuffer.wrap(new byte[1]), (long) globs.size() * recordLength - 1);
+
+            ThreadLocal<ExportGlob> exportGlobs = ThreadLocal.withInitial(() -> new ExportGlob(this, new RealPaddingFactory(withPadding)));
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int from = 0; from < globs.size(); from += RECORDS_PER_CHUNK) {
+                    int start = from;
+                    int end = Math.min(from + RECORDS_PER_CHUNK, globs.size());
+                    futures.add(executor.submit(() -> {
+                        writeChunk(globs, start, end, type, recordLength, exportGlobs.get(), charset.newEncoder(), channel);
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted", e);
+            } catch (ExecutionException e) {
+                String message = "Fail to export in " + path;
+                LOGGER.error(message, e.getCause());
+                throw new RuntimeException(message, e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static final int RECORDS_PER_CHUNK = 4096;
+
+    private static void writeChunk(List<Glob> globs, int from, int to, GlobType type, int recordLength, ExportGlob exportGlob,
+                                   CharsetEncoder encoder, FileChannel channel) throws IOException {
+        StringBuilder line = new StringBuilder(recordLength);
+        LineWriter lineWriter = new StringBuilderLineWriter(line);
+        ByteBuffer buffer = ByteBuffer.allocate((to - from) * recordLength);
+        for (int i = from; i < to; i++) {
+            Glob glob = globs.get(i);
+            if (glob.getType() != type) {
+                throw new RuntimeException("All globs must be of type " + type.getName() + " got " + glob.getType().getName() + " at " + i);
+            }
+            line.setLength(0);
+            exportGlob.accept(glob, lineWriter);
+            int start = buffer.position();
+            CoderResult result = encoder.reset().encode(CharBuffer.wrap(line), buffer, true);
+            if (result.isError() || result.isOverflow() || buffer.position() - start != recordLength) {
+                throw new RuntimeException("Line " + i + " is not " + recordLength + " bytes long : '" + line + "'");
+            }
+        }
+        buffer.flip();
+        long position = (long) from * recordLength;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
     public ExportBySize excludeField(Field field) {
         this.fieldsToExclude.add(field);
         return this;
@@ -174,7 +311,11 @@ public class ExportBySize {
     interface FieldWrite {
         void write(Glob glob, LineWriter writer);
 
+        void write(Glob glob, CellWriter writer);
+
         void writeHeader(LineWriter writer, String name);
+
+        String getHeaderName(String name);
     }
 
     interface AddSeperator {
@@ -188,6 +329,11 @@ public class ExportBySize {
         Padding NOPADDING = s -> s == null ? "" : s;
 
         String pad(String string);
+
+        // the output length, -1 if not fixed
+        default int size() {
+            return -1;
+        }
     }
 
     interface PaddingFactory {
@@ -202,6 +348,22 @@ public class ExportBySize {
         void newLine();
     }
 
+    public interface CellWriter {
+        void appendEmpty();
+
+        void append(String value);
+
+        void append(double value);
+
+        void append(boolean value);
+
+        void append(LocalDate value);
+
+        void append(ZonedDateTime value);
+
+        void newLine();
+    }
+
     static class RealAddSeparator implements AddSeperator {
         final char sep;
 
@@ -248,6 +410,10 @@ public class ExportBySize {
                 }
             }
         }
+
+        public int size() {
+            return size;
+        }
     }
 
     static class RealPaddingFactory implements PaddingFactory {
@@ -270,15 +436,19 @@ public class ExportBySize {
 
     static class WriteObject {
         private final ExportBySize exportBySize;
-        private final List<FieldWrite> fieldWrites = new ArrayList<>();
-        private final AddSeperator separator;
+        private final FieldWrite[] fieldWrites;
+        private final boolean hasSeparator;
+        private final char separator;
         private final String name;
+        private int recordSize;
 
         public WriteObject(ExportBySize exportBySize, GlobType type, AddSeperator separator, PaddingFactory paddingFactory,
                            Set<Field> fieldsToExclude, Set<String> names, String name) {
             this.exportBySize = exportBySize;
-            this.separator = separator;
+            this.hasSeparator = separator instanceof RealAddSeparator;
+            this.separator = hasSeparator ? ((RealAddSeparator) separator).sep : 0;
             this.name = name;
+            List<FieldWrite> fieldWrites = new ArrayList<>();
             for (Field field : type.getFields()) {
                 if (names.isEmpty() || field.findOptAnnotation(NamedExport.KEY)
                         .map(NamedExport.names).stream().flatMap(Stream::of).anyMatch(names::contains)) {
@@ -288,25 +458,53 @@ public class ExportBySize {
                             LOGGER.warn("Field Ignored " + field.getFullName());
                         } else {
                             fieldWrites.add(field.safeAccept(new FieldWriterVisitor(exportBySize, padding, name)).fieldWrite);
+                            recordSize = recordSize < 0 || padding.size() < 0 ? -1 : recordSize + padding.size();
                         }
                     }
                 }
             }
+            this.fieldWrites = fieldWrites.toArray(new FieldWrite[0]);
+        }
+
+        // number of char of a line (without separator and new line), -1 if not a fix size export
+        int getRecordSize() {
+            return recordSize;
         }
 
         public void writeHeader(LineWriter writer) {
-            for (Iterator<FieldWrite> iterator = fieldWrites.iterator(); iterator.hasNext(); ) {
-                FieldWrite fieldWrite = iterator.next();
-                fieldWrite.writeHeader(writer, name);
-                separator.seperate(writer, !iterator.hasNext());
+            for (int i = 0; i < fieldWrites.length; i++) {
+                if (hasSeparator && i != 0) {
+                    writer.append(separator);
+                }
+                fieldWrites[i].writeHeader(writer, name);
             }
         }
 
         public void write(Glob glob, LineWriter writer) throws IOException {
-            for (Iterator<FieldWrite> iterator = fieldWrites.iterator(); iterator.hasNext(); ) {
-                FieldWrite fieldWrite = iterator.next();
+            FieldWrite[] fieldWrites = this.fieldWrites;
+            if (hasSeparator) {
+                for (int i = 0; i < fieldWrites.length; i++) {
+                    if (i != 0) {
+                        writer.append(separator);
+                    }
+                    fieldWrites[i].write(glob, writer);
+                }
+            } else {
+                for (FieldWrite fieldWrite : fieldWrites) {
+                    fieldWrite.write(glob, writer);
+                }
+            }
+        }
+
+        public void writeHeader(CellWriter writer) {
+            for (FieldWrite fieldWrite : fieldWrites) {
+                writer.append(fieldWrite.getHeaderName(name));
+            }
+        }
+
+        public void write(Glob glob, CellWriter writer) {
+            for (FieldWrite fieldWrite : fieldWrites) {
                 fieldWrite.write(glob, writer);
-                separator.seperate(writer, !iterator.hasNext());
             }
         }
     }
@@ -367,20 +565,118 @@ public class ExportBySize {
         }
 
         public void writeHeader(LineWriter writer, String name) {
-            writer.append(ReNamedExport.getHeaderName(name, field));
+            writer.append(getHeaderName(name));
+        }
+
+        public String getHeaderName(String name) {
+            return ReNamedExport.getHeaderName(name, field);
+        }
+    }
+
+    /*
+    quote the value if it contains the separator (or the escape char if quoteOnEscape), doubling the escape char inside,
+    and write new line as \n. Each char is classified once; a value without special char is returned as is.
+     */
+    static class Escaper {
+        private static final byte SEPARATOR = 1;
+        private static final byte ESCAPE = 2;
+        private static final byte NEW_LINE = 4;
+        private final byte[] table = new byte[128];
+        private final char separator;
+        private final char escape;
+        private final StringBuilder builder = new StringBuilder();
+
+        Escaper(char separator, char escape) {
+            this.separator = separator;
+            this.escape = escape;
+            table['\n'] |= NEW_LINE;
+            if (separator < table.length) {
+                table[separator] |= SEPARATOR;
+            }
+            if (escape < table.length) {
+                table[escape] |= ESCAPE;
+            }
+        }
+
+        private int classify(char c) {
+            if (c < table.length) {
+                return table[c];
+            }
+            return (c == separator ? SEPARATOR : 0) | (c == escape ? ESCAPE : 0);
+        }
+
+        String escape(String value, boolean quoteOnEscape) {
+            int flags = 0;
+            for (int i = 0; i < value.length(); i++) {
+                flags |= classify(value.charAt(i));
+            }
+            if (flags == 0) {
+                return value;
+            }
+            boolean quote = (flags & SEPARATOR) != 0 || (quoteOnEscape && (flags & ESCAPE) != 0);
+            if (!quote && (flags & NEW_LINE) == 0) {
+                return value;
+            }
+            builder.setLength(0);
+            append(value, quote);
+            return builder.toString();
+        }
+
+        String escape(String[] values, char arraySeparator) {
+            builder.setLength(0);
+            for (int i = 0; i < values.length; i++) {
+                if (i != 0) {
+                    if (arraySeparator == '\n') {
+                        builder.append("\\n");
+                    } else {
+                        builder.append(arraySeparator);
+                    }
+                }
+                String value = values[i];
+                int flags = 0;
+                for (int j = 0; j < value.length(); j++) {
+                    flags |= classify(value.charAt(j));
+                }
+                if (flags == 0) {
+                    builder.append(value);
+                } else {
+                    append(value, (flags & SEPARATOR) != 0);
+                }
+            }
+            return builder.toString();
+        }
+
+        private void append(String value, boolean quote) {
+            if (quote) {
+                builder.append(escape);
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\n') {
+                    builder.append("\\n");
+                } else {
+                    builder.append(c);
+                    if (quote && c == escape) {
+                        builder.append(escape);
+                    }
+                }
+            }
+            if (quote) {
+                builder.append(escape);
+            }
         }
     }
 
     static class StringFieldWrite extends HeaderFieldWrite {
         private final Padding padding;
         private final StringField field;
-        private ExportBySize exportBySize;
+        private final Escaper escaper;
 
         public StringFieldWrite(StringField field, ExportBySize exportBySize, Padding padding) {
             super(field);
             this.field = field;
-            this.exportBySize = exportBySize;
             this.padding = padding;
+            this.escaper = new Escaper(exportBySize.separator, exportBySize.escape);
         }
 
         public void write(Glob glob, LineWriter writer) {
@@ -389,24 +685,23 @@ public class ExportBySize {
                 writer.append(padding.pad(null));
                 return;
             }
-            if (value.indexOf(exportBySize.separator) != -1) {
-                if (value.indexOf(exportBySize.escape) != -1) {
-                    value = value.replaceAll("" + exportBySize.escape, "" + exportBySize.escape + "" + exportBySize.escape);
-                }
-                value = exportBySize.escape + value + exportBySize.escape;
+            writer.append(padding.pad(escaper.escape(value, true)));
+        }
+
+        public void write(Glob glob, CellWriter writer) {
+            String value = glob.get(field);
+            if (value == null) {
+                writer.appendEmpty();
             } else {
-                if (value.indexOf(exportBySize.escape) != -1) {
-                    value = value.replaceAll("" + exportBySize.escape, "" + exportBySize.escape + "" + exportBySize.escape);
-                    value = exportBySize.escape + value + exportBySize.escape;
-                }
+                writer.append(value);
             }
-            writer.append(padding.pad(value.replace("\n", "\\n")));
         }
     }
 
     static class StringArrayFieldWrite extends HeaderFieldWrite {
         private final Padding padding;
         private final StringArrayField field;
+        private final Escaper escaper;
         private ExportBySize exportBySize;
 
         public StringArrayFieldWrite(StringArrayField field, ExportBySize exportBySize, Padding padding) {
@@ -414,6 +709,7 @@ public class ExportBySize {
             this.field = field;
             this.exportBySize = exportBySize;
             this.padding = padding;
+            this.escaper = new Escaper(exportBySize.separator, exportBySize.escape);
         }
 
         public void write(Glob glob, LineWriter writer) {
@@ -422,23 +718,17 @@ public class ExportBySize {
                 writer.append(padding.pad(null));
                 return;
             }
-            StringBuilder stringBuilder = new StringBuilder();
-            for (String s : value) {
-                if (s.indexOf(exportBySize.separator) != -1) {
-                    if (s.indexOf(exportBySize.escape) != -1) {
-                        s = s.replaceAll("" + exportBySize.escape, "" + exportBySize.escape + "" + exportBySize.escape);
-                    }
-                    s = exportBySize.escape + s + exportBySize.escape;
-                }
-                stringBuilder.append(s)
-                        .append(exportBySize.arraySeparator);
-            }
-            if (stringBuilder.length() != 0) {
-                // remove last arraySeparator.
-                stringBuilder.delete(stringBuilder.length() - 1, stringBuilder.length());
+            // only values with the separator are quoted
+            writer.append(padding.pad(escaper.escape(value, exportBySize.arraySeparator)));
+        }
+
+        public void write(Glob glob, CellWriter writer) {
+            String[] value = glob.get(field);
+            if (value == null || value.length == 0) {
+                writer.appendEmpty();
+            } else {
+                writer.append(String.join(String.valueOf(exportBySize.arraySeparator), value));
             }
-            String outputValue = stringBuilder.toString();
-            writer.append(padding.pad(outputValue.replace("\n", "\\n")));
         }
     }
 
@@ -456,6 +746,15 @@ public class ExportBySize {
             Integer value = glob.get(field);
             writer.append(padding.pad(value == null ? null : "" + value));
         }
+
+        public void write(Glob glob, CellWriter writer) {
+            Integer value = glob.get(field);
+            if (value == null) {
+                writer.appendEmpty();
+            } else {
+                writer.append(value.doubleValue());
+            }
+        }
     }
 
     static class BooleanFieldWrite extends HeaderFieldWrite {
@@ -483,6 +782,15 @@ public class ExportBySize {
             Boolean value = glob.get(field);
             writer.append(padding.pad(value == null ? null : value ? TRUE : FALSE));
         }
+
+        public void write(Glob glob, CellWriter writer) {
+            Boolean value = glob.get(field);
+            if (value == null) {
+                writer.appendEmpty();
+            } else {
+                writer.append(value.booleanValue());
+            }
+        }
     }
 
     static class LongFieldWrite extends HeaderFieldWrite {
@@ -490,6 +798,8 @@ public class ExportBySize {
         private Padding padding;
         private Format format;
 
+        private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
         public LongFieldWrite(LongField field, Padding padding) {
             super(field);
             this.field = field;
@@ -501,6 +811,18 @@ public class ExportBySize {
             String strValue = "" + value;
             writer.append(padding.pad(value == null ? null : "" + strValue));
         }
+
+        public void write(Glob glob, CellWriter writer) {
+            Long value = glob.get(field);
+            if (value == null) {
+                writer.appendEmpty();
+            } else if (Math.abs(value) > MAX_EXACT_DOUBLE) {
+                // not exact as a double (excel number): written as text
+                writer.append(value.toString());
+            } else {
+                writer.append(value.doubleValue());
+            }
+        }
     }
 
     static class DoubleFieldWrite extends HeaderFieldWrite {
@@ -531,6 +853,15 @@ public class ExportBySize {
             Double value = glob.get(field);
             writer.append(padding.pad(value == null ? null : format.format(value)));
         }
+
+        public void write(Glob glob, CellWriter writer) {
+            Double value = glob.get(field);
+            if (value == null) {
+                writer.appendEmpty();
+            } else {
+                writer.append(value.doubleValue());
+            }
+        }
     }
 
     static class DateFieldWrite extends HeaderFieldWrite {
@@ -559,6 +890,15 @@ public class ExportBySize {
             LocalDate value = glob.get(field);
             writer.append(padding.pad(value == null ? null : format.format(value)));
         }
+
+        public void write(Glob glob, CellWriter writer) {
+            LocalDate value = glob.get(field);
+            if (value == null) {
+                writer.appendEmpty();
+            } else {
+                writer.append(value);
+            }
+        }
     }
 
     static class DatetimeFieldWrite extends HeaderFieldWrite {
@@ -587,6 +927,15 @@ public class ExportBySize {
             ZonedDateTime value = glob.get(field);
             writer.append(padding.pad(value == null ? null : format.format(value)));
         }
+
+        public void write(Glob glob, CellWriter writer) {
+            ZonedDateTime value = glob.get(field);
+            if (value == null) {
+                writer.appendEmpty();
+            } else {
+                writer.append(value);
+            }
+        }
     }
 
     static class DateAsIntFieldWrite extends HeaderFieldWrite {
@@ -615,6 +964,15 @@ public class ExportBySize {
             Integer value = glob.get(field);
             writer.append(padding.pad(value == null ? null : format.format(LocalDate.ofEpochDay(value))));
         }
+
+        public void write(Glob glob, CellWriter writer) {
+            Integer value = glob.get(field);
+            if (value == null) {
+                writer.appendEmpty();
+            } else {
+                writer.append(LocalDate.ofEpochDay(value));
+            }
+        }
     }
 
     public static class LineWriterToWriter implements LineWriter {
@@ -651,8 +1009,101 @@ public class ExportBySize {
         }
     }
 
+    static class StringBuilderLineWriter implements LineWriter {
+        private final StringBuilder builder;
+
+        StringBuilderLineWriter(StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        public void append(String str) {
+            if (str != null) {
+                builder.append(str);
+            }
+        }
+
+        public void append(char ch) {
+            builder.append(ch);
+        }
+
+        public void newLine() {
+            builder.append('\n');
+        }
+    }
+
+    public static class ExcelCellWriter implements CellWriter {
+        private final Sheet sheet;
+        private final CellStyle dateStyle;
+        private final CellStyle dateTimeStyle;
+        private final ZoneId zoneId;
+        private Row row;
+        private int rowIndex = 0;
+        private int columnIndex = 0;
+
+        public ExcelCellWriter(Workbook workbook, Sheet sheet) {
+            this(workbook, sheet, null);
+        }
+
+        // zoneId : the zone of the date times written (null to keep the time of the value in its own zone)
+        public ExcelCellWriter(Workbook workbook, Sheet sheet, ZoneId zoneId) {
+            this.sheet = sheet;
+            this.zoneId = zoneId;
+            DataFormat dataFormat = workbook.createDataFormat();
+            dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(dataFormat.getFormat("yyyy-mm-dd"));
+            dateTimeStyle = workbook.createCellStyle();
+            dateTimeStyle.setDataFormat(dataFormat.getFormat("yyyy-mm-dd hh:mm:ss"));
+        }
+
+        private Cell nextCell() {
+            if (row == null) {
+                row = sheet.createRow(rowIndex);
+            }
+            return row.createCell(columnIndex++);
+        }
+
+        public void appendEmpty() {
+            columnIndex++;
+        }
+
+        public void append(String value) {
+            nextCell().setCellValue(value);
+        }
+
+        public void append(double value) {
+            nextCell().setCellValue(value);
+        }
+
+        public void append(boolean value) {
+            nextCell().setCellValue(value);
+        }
+
+        public void append(LocalDate value) {
+            Cell cell = nextCell();
+            cell.setCellValue(value);
+            cell.setCellStyle(dateStyle);
+        }
+
+        public void append(ZonedDateTime value) {
+            Cell cell = nextCell();
+            cell.setCellValue((zoneId == null ? value : value.withZoneSameInstant(zoneId)).toLocalDateTime());
+            cell.setCellStyle(dateTimeStyle);
+        }
+
+        public void newLine() {
+            if (row == null) {
+                sheet.createRow(rowIndex);
+            }
+            row = null;
+            rowIndex++;
+            columnIndex = 0;
+        }
+    }
+
     private static class ExportGlob {
         private final Map<GlobType, WriteObject> writeObjectMap = new HashMap<>();
+        private GlobType lastType;
+        private WriteObject lastWriteObject;
         private ExportBySize exportBySize;
         private PaddingFactory paddingFactory;
         private AddSeperator separator;
@@ -664,8 +1115,7 @@ public class ExportBySize {
         }
 
         public void accept(Glob glob, LineWriter writer) {
-            GlobType type = glob.getType();
-            WriteObject writeObject = writeObjectMap.computeIfAbsent(type, this::apply);
+            WriteObject writeObject = getWriteObject(glob.getType());
             try {
                 writeObject.write(glob, writer);
                 writer.newLine();
@@ -674,11 +1124,26 @@ public class ExportBySize {
             }
         }
 
+        public void accept(Glob glob, CellWriter writer) {
+            WriteObject writeObject = getWriteObject(glob.getType());
+            writeObject.write(glob, writer);
+            writer.newLine();
+        }
+
         private void add(LineWriter writer, String value, boolean isLast) {
             writer.append(value);
             separator.seperate(writer, isLast);
         }
 
+        // most export are of a single type: avoid the map lookup for each glob.
+        private WriteObject getWriteObject(GlobType type) {
+            if (type != lastType) {
+                lastWriteObject = writeObjectMap.computeIfAbsent(type, this::apply);
+                lastType = type;
+            }
+            return lastWriteObject;
+        }
+
         private WriteObject apply(GlobType globType) {
             return new WriteObject(exportBySize, globType, separator, paddingFactory, exportBySize.fieldsToExclude,
                     exportBySize.filter, exportBySize.name);
@@ -689,11 +1154,16 @@ public class ExportBySize {
         }
 
         public void exportHeader(GlobType headerType, LineWriter writer) {
-            WriteObject writeObject = writeObjectMap.computeIfAbsent(headerType, this::apply);
+            WriteObject writeObject = getWriteObject(headerType);
             writeObject.writeHeader(writer);
             writer.newLine();
         }
 
+        public void exportHeader(GlobType headerType, CellWriter writer) {
+            WriteObject writeObject = getWriteObject(headerType);
+            writeObject.writeHeader(writer);
+            writer.newLine();
+        }
     }
 
 }
@@ -0,0 +1,779 @@
+package org.globsframework.csv;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.fields.*;
+import org.globsframework.core.model.Glob;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAccessor;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+expression of FieldMappingType.ExpressionType, parsed once in a tree of nodes evaluated on each line.
+  literals : 12, 1.5, 'text' or "text", true, false, null
+  fields of the line (or external variables) by name, `other name` between back quotes
+  operators by priority : c ? a : b, a ?? b, ||, &&, == !=, < <= > >=, & (concat), + -, * / %, unary - !
+  functions : see FUNCTIONS
+Numbers are Long, Double or BigDecimal (the widest operand win), a String is parsed when used as a number.
+Dates are LocalDate or ZonedDateTime. An operation on null give null, a comparison with null is false.
+A division or a modulo by zero give null.
+Sub expressions that do not depend on the line are computed at parse time.
+ */
+class Expression {
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Map<String, DateTimeFormatter> FORMATTERS = new ConcurrentHashMap<>();
+    private static final Map<String, FunctionDef> FUNCTIONS = new HashMap<>();
+    private final String source;
+    private final Node root;
+
+    private Expression(String source, Node root) {
+        this.source = source;
+        this.root = root;
+    }
+
+    static Expression parse(String expression, GlobType lineType, Map<String, Reformater.DataAccess> externalVariables) {
+        Parser parser = new Parser(expression, lineType, externalVariables);
+        Node node = parser.parseExpression();
+        parser.skipSpaces();
+        if (!parser.isEnd()) {
+            throw parser.error("unexpected '" + parser.rest() + "'");
+        }
+        return new Expression(expression, node);
+    }
+
+    Object evaluate(Glob line) {
+        try {
+            return root.eval(line);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Fail to evaluate " + source + " : " + e.getMessage(), e);
+        }
+    }
+
+    boolean isConstant() {
+        return root instanceof Constant;
+    }
+
+    public String toString() {
+        return source;
+    }
+
+    // value to set in a field of the given type
+    static Object toFieldValue(Object value, Field field) {
+        if (value == null) {
+            return null;
+        }
+        if (field instanceof StringField) {
+            return toText(value);
+        }
+        if (field instanceof IntegerField) {
+            Number number = toNumber(value);
+            return number instanceof Long l ? Math.toIntExact(l) : toBigDecimal(number).intValueExact();
+        }
+        if (field instanceof LongField) {
+            Number number = toNumber(value);
+            return number instanceof Long ? number : toBigDecimal(number).longValueExact();
+        }
+        if (field instanceof DoubleField) {
+            return toNumber(value).doubleValue();
+        }
+        if (field instanceof BigDecimalField) {
+            return toBigDecimal(toNumber(value));
+        }
+        if (field instanceof BooleanField) {
+            return toBoolean(value);
+        }
+        if (field instanceof DateField) {
+            return toDate(value, null);
+        }
+        if (field instanceof DateTimeField) {
+            return toDateTime(value, null);
+        }
+        throw new RuntimeException("Expression result can not be set in " + field.getName() + " of type " + field.getDataType());
+    }
+
+    interface Node {
+        Object eval(Glob line);
+    }
+
+    record Constant(Object value) implements Node {
+        public Object eval(Glob line) {
+            return value;
+        }
+    }
+
+    record FieldNode(Field field) implements Node {
+        public Object eval(Glob line) {
+            Object value = line.getValue(field);
+            if (value instanceof Integer i) {
+                return i.longValue();
+            }
+            if (value instanceof String str && str.isEmpty()) {
+                return null;
+            }
+            return value;
+        }
+    }
+
+    record ExternalNode(String name, Reformater.DataAccess dataAccess) implements Node {
+        public Object eval(Glob line) {
+            return dataAccess.get(name, line);
+        }
+    }
+
+    record Ternary(Node condition, Node then, Node otherwise) implements Node {
+        public Object eval(Glob line) {
+            return toBoolean(condition.eval(line)) ? then.eval(line) : otherwise.eval(line);
+        }
+    }
+
+    record Coalesce(Node left, Node right) implements Node {
+        public Object eval(Glob line) {
+            Object value = left.eval(line);
+            return value != null ? value : right.eval(line);
+        }
+    }
+
+    record And(Node left, Node right) implements Node {
+        public Object eval(Glob line) {
+            return toBoolean(left.eval(line)) && toBoolean(right.eval(line));
+        }
+    }
+
+    record Or(Node left, Node right) implements Node {
+        public Object eval(Glob line) {
+            return toBoolean(left.eval(line)) || toBoolean(right.eval(line));
+        }
+    }
+
+    record Not(Node node) implements Node {
+        public Object eval(Glob line) {
+            return !toBoolean(node.eval(line));
+        }
+    }
+
+    record Negate(Node node) implements Node {
+        public Object eval(Glob line) {
+            Object value = node.eval(line);
+            return value == null ? null : arithmetic('-', 0L, value);
+        }
+    }
+
+    record Binary(String op, Node left, Node right) implements Node {
+        public Object eval(Glob line) {
+            Object l = left.eval(line);
+            Object r = right.eval(line);
+            return switch (op) {
+                case "==" -> isEqual(l, r);
+                case "!=" -> !isEqual(l, r);
+                case "<" -> l != null && r != null && compare(l, r) < 0;
+                case "<=" -> l != null && r != null && compare(l, r) <= 0;
+                case ">" -> l != null && r != null && compare(l, r) > 0;
+                case ">=" -> l != null && r != null && compare(l, r) >= 0;
+                case "&" -> toText(l) + toText(r);
+                default -> l == null || r == null ? null : arithmetic(op.charAt(0), l, r);
+            };
+        }
+    }
+
+    record Call(String name, FunctionDef function, Node[] args) implements Node {
+        public Object eval(Glob line) {
+            Object[] values = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                values[i] = args[i].eval(line);
+            }
+            return function.body.apply(values);
+        }
+    }
+
+    interface Body {
+        Object apply(Object[] args);
+    }
+
+    record FunctionDef(int minArgs, int maxArgs, boolean pure, Body body) {
+    }
+
+    static class Parser {
+        private final String text;
+        private final GlobType lineType;
+        private final Map<String, Reformater.DataAccess> externalVariables;
+        private int pos;
+
+        Parser(String text, GlobType lineType, Map<String, Reformater.DataAccess> externalVariables) {
+            this.text = text;
+            this.lineType = lineType;
+            this.externalVariables = externalVariables == null ? Map.of() : externalVariables;
+        }
+
+        Node parseExpression() {
+            Node condition = parseCoalesce();
+            if (matchSingle('?')) {
+                Node then = parseExpression();
+                if (!match(":")) {
+                    throw error("':' expected");
+                }
+                Node otherwise = parseExpression();
+                if (condition instanceof Constant constant) {
+                    return toBoolean(constant.value) ? then : otherwise;
+                }
+                return new Ternary(condition, then, otherwise);
+            }
+            return condition;
+        }
+
+        private Node parseCoalesce() {
+            Node node = parseOr();
+            while (match("??")) {
+                Node right = parseOr();
+                node = fold(new Coalesce(node, right), node, right);
+            }
+            return node;
+        }
+
+        private Node parseOr() {
+            Node node = parseAnd();
+            while (match("||")) {
+                Node right = parseAnd();
+                node = fold(new Or(node, right), node, right);
+            }
+            return node;
+        }
+
+        private Node parseAnd() {
+            Node node = parseEquality();
+            while (match("&&")) {
+                Node right = parseEquality();
+                node = fold(new And(node, right), node, right);
+            }
+            return node;
+        }
+
+        private Node parseEquality() {
+            Node node = parseComparison();
+            String op;
+            while ((op = matchOneOf("==", "!=")) != null) {
+                node = binary(op, node, parseComparison());
+            }
+            return node;
+        }
+
+        private Node parseComparison() {
+            Node node = parseConcat();
+            String op;
+            while ((op = matchOneOf("<=", ">=", "<", ">")) != null) {
+                node = binary(op, node, parseConcat());
+            }
+            return node;
+        }
+
+        private Node parseConcat() {
+            Node node = parseAdditive();
+            while (matchSingle('&')) {
+                node = binary("&", node, parseAdditive());
+            }
+            return node;
+        }
+
+        private Node parseAdditive() {
+            Node node = parseMultiplicative();
+            String op;
+            while ((op = matchOneOf("+", "-")) != null) {
+                node = binary(op, node, parseMultiplicative());
+            }
+            return node;
+        }
+
+        private Node parseMultiplicative() {
+            Node node = parseUnary();
+            String op;
+            while ((op = matchOneOf("*", "/", "%")) != null) {
+                node = binary(op, node, parseUnary());
+            }
+            return node;
+        }
+
+        private Node parseUnary() {
+            if (match("-")) {
+                Node node = parseUnary();
+                return fold(new Negate(node), node);
+            }
+            if (match("!")) {
+                Node node = parseUnary();
+                return fold(new Not(node), node);
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() {
+            skipSpaces();
+            if (isEnd()) {
+                throw error("unexpected end");
+            }
+            char c = text.charAt(pos);
+            if (c == '(') {
+                pos++;
+                Node node = parseExpression();
+                if (!match(")")) {
+                    throw error("')' expected");
+                }
+                return node;
+            }
+            if (c == '\'' || c == '"') {
+                return new Constant(readString(c));
+            }
+            if (Character.isDigit(c) || c == '.') {
+                return new Constant(readNumber());
+            }
+            if (c == '`') {
+                int end = text.indexOf('`', pos + 1);
+                if (end < 0) {
+                    throw error("'`' expected");
+                }
+                String name = text.substring(pos + 1, end);
+                pos = end + 1;
+                return variable(name);
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                int start = pos;
+                while (pos < text.length() && (Character.isJavaIdentifierPart(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                    pos++;
+                }
+                String name = text.substring(start, pos);
+                if (match("(")) {
+                    return call(name);
+                }
+                return switch (name) {
+                    case "true" -> new Constant(Boolean.TRUE);
+                    case "false" -> new Constant(Boolean.FALSE);
+                    case "null" -> new Constant(null);
+                    default -> variable(name);
+                };
+            }
+            throw error("unexpected '" + c + "'");
+        }
+
+        private Node variable(String name) {
+            Field field = lineType.findField(name);
+            if (field != null) {
+                return new FieldNode(field);
+            }
+            Reformater.DataAccess dataAccess = externalVariables.get(name);
+            if (dataAccess != null) {
+                return new ExternalNode(name, dataAccess);
+            }
+            throw error("field " + name + " not found in " + lineType.getName());
+        }
+
+        private Node call(String name) {
+            FunctionDef function = FUNCTIONS.get(name);
+            if (function == null) {
+                throw error("unknown function " + name);
+            }
+            List<Node> args = new ArrayList<>();
+            if (!match(")")) {
+                do {
+                    args.add(parseExpression());
+                } while (match(","));
+                if (!match(")")) {
+                    throw error("')' expected");
+                }
+            }
+            if (args.size() < function.minArgs || args.size() > function.maxArgs) {
+                throw error("bad number of arguments for " + name);
+            }
+            Node[] nodes = args.toArray(new Node[0]);
+            Call node = new Call(name, function, nodes);
+            return function.pure ? fold(node, nodes) : node;
+        }
+
+        private Node binary(String op, Node left, Node right) {
+            return fold(new Binary(op, left, right), left, right);
+        }
+
+        // the node do not read the line if all its children are constants.
+        private Node fold(Node node, Node... children) {
+            for (Node child : children) {
+                if (!(child instanceof Constant)) {
+                    return node;
+                }
+            }
+            try {
+                return new Constant(node.eval(null));
+            } catch (RuntimeException e) {
+                throw error(e.getMessage());
+            }
+        }
+
+        private String readString(char quote) {
+            StringBuilder builder = new StringBuilder();
+            pos++;
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '\\' && pos < text.length()) {
+                    builder.append(text.charAt(pos++));
+                } else if (c == quote) {
+                    return builder.toString();
+                } else {
+                    builder.append(c);
+                }
+            }
+            throw error("end of string expected");
+        }
+
+        private Number readNumber() {
+            int start = pos;
+            boolean decimal = false;
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    decimal = true;
+                } else if ((c == '-' || c == '+') && (text.charAt(pos - 1) == 'e' || text.charAt(pos - 1) == 'E')) {
+                    // exponent sign
+                } else if (!Character.isDigit(c)) {
+                    break;
+                }
+                pos++;
+            }
+            String number = text.substring(start, pos);
+            try {
+                return decimal ? (Number) Double.parseDouble(number) : (Number) Long.parseLong(number);
+            } catch (NumberFormatException e) {
+                throw error("bad number " + number);
+            }
+        }
+
+        void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        boolean isEnd() {
+            return pos >= text.length();
+        }
+
+        String rest() {
+            return text.substring(pos);
+        }
+
+        private boolean match(String op) {
+            skipSpaces();
+            if (text.startsWith(op, pos)) {
+                pos += op.length();
+                return true;
+            }
+            return false;
+        }
+
+        // the char, not doubled (& but not &&, ? but not ??)
+        private boolean matchSingle(char op) {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == op && (pos + 1 >= text.length() || text.charAt(pos + 1) != op)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private String matchOneOf(String... ops) {
+            skipSpaces();
+            for (String op : ops) {
+                if (text.startsWith(op, pos) && !isLongerOperator(op)) {
+                    pos += op.length();
+                    return op;
+                }
+            }
+            return null;
+        }
+
+        // < of <=, ! of != ... are matched with their own operator
+        private boolean isLongerOperator(String op) {
+            int next = pos + op.length();
+            if (op.length() != 1 || next >= text.length()) {
+                return false;
+            }
+            char c = text.charAt(next);
+            return c == '=' || (op.charAt(0) == c && (c == '&' || c == '|'));
+        }
+
+        RuntimeException error(String message) {
+            return new RuntimeException("Error in expression '" + text + "' at " + pos + " : " + message);
+        }
+    }
+
+    static boolean toBoolean(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        if (value instanceof String str) {
+            return str.equalsIgnoreCase("true") || str.equals("1");
+        }
+        if (value instanceof Number number) {
+            return number.doubleValue() != 0;
+        }
+        throw new RuntimeException("Not a boolean " + value);
+    }
+
+    static Number toNumber(Object value) {
+        if (value instanceof Long || value instanceof Double || value instanceof BigDecimal) {
+            return (Number) value;
+        }
+        if (value instanceof Number number) {
+            return number instanceof Float ? (Number) number.doubleValue() : (Number) number.longValue();
+        }
+        if (value instanceof String str) {
+            String s = str.trim();
+            try {
+                if (s.indexOf('.') >= 0 || s.indexOf('e') >= 0 || s.indexOf('E') >= 0) {
+                    return Double.parseDouble(s);
+                }
+                return Long.parseLong(s);
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Not a number '" + str + "'");
+            }
+        }
+        throw new RuntimeException("Not a number " + value);
+    }
+
+    static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal bigDecimal) {
+            return bigDecimal;
+        }
+        if (number instanceof Double d) {
+            if (d.isNaN() || d.isInfinite()) {
+                throw new RuntimeException("Not a finite number " + d);
+            }
+            return BigDecimal.valueOf(d);
+        }
+        return BigDecimal.valueOf(number.longValue());
+    }
+
+    static String toText(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Double d && (d.isNaN() || d.isInfinite())) {
+            return d.toString();
+        }
+        if (value instanceof Double || value instanceof BigDecimal) {
+            String s = toBigDecimal((Number) value).toPlainString();
+            return s.endsWith(".0") ? s.substring(0, s.length() - 2) : s;
+        }
+        if (value instanceof ZonedDateTime dateTime) {
+            return DATE_TIME.format(dateTime);
+        }
+        return value.toString();
+    }
+
+    static Object arithmetic(char op, Object left, Object right) {
+        Number l = toNumber(left);
+        Number r = toNumber(right);
+        if ((op == '/' || op == '%') && (r instanceof BigDecimal b ? b.signum() == 0 : r.doubleValue() == 0)) {
+            return null;
+        }
+        if (l instanceof BigDecimal || r instanceof BigDecimal) {
+            BigDecimal a = toBigDecimal(l);
+            BigDecimal b = toBigDecimal(r);
+            return switch (op) {
+                case '+' -> a.add(b);
+                case '-' -> a.subtract(b);
+                case '*' -> a.multiply(b);
+                case '/' -> a.divide(b, MathContext.DECIMAL64);
+                case '%' -> a.remainder(b);
+                default -> throw new RuntimeException("Unknown operator " + op);
+            };
+        }
+        if (l instanceof Double || r instanceof Double) {
+            double a = l.doubleValue();
+            double b = r.doubleValue();
+            return switch (op) {
+                case '+' -> a + b;
+                case '-' -> a - b;
+                case '*' -> a * b;
+                case '/' -> a / b;
+                case '%' -> a % b;
+                default -> throw new RuntimeException("Unknown operator " + op);
+            };
+        }
+        long a = l.longValue();
+        long b = r.longValue();
+        return switch (op) {
+            case '+' -> Math.addExact(a, b);
+            case '-' -> Math.subtractExact(a, b);
+            case '*' -> Math.multiplyExact(a, b);
+            // 7 / 2 is 3.5
+            case '/' -> a % b == 0 ? (Object) (a / b) : (Object) ((double) a / b);
+            case '%' -> a % b;
+            default -> throw new RuntimeException("Unknown operator " + op);
+        };
+    }
+
+    static boolean isEqual(Object left, Object right) {
+        if (left == null || right == null) {
+            return left == right;
+        }
+        if (left instanceof Number || right instanceof Number) {
+            try {
+                return compareNumbers(toNumber(left), toNumber(right)) == 0;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+        return left.equals(right);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object left, Object right) {
+        if (left instanceof Number || right instanceof Number) {
+            return compareNumbers(toNumber(left), toNumber(right));
+        }
+        if (left instanceof LocalDate || right instanceof LocalDate) {
+            return toDate(left, null).compareTo(toDate(right, null));
+        }
+        if (left instanceof ZonedDateTime || right instanceof ZonedDateTime) {
+            return toDateTime(left, null).compareTo(toDateTime(right, null));
+        }
+        if (left instanceof Comparable comparable && left.getClass() == right.getClass()) {
+            return comparable.compareTo(right);
+        }
+        throw new RuntimeException("Can not compare " + left + " and " + right);
+    }
+
+    private static int compareNumbers(Number l, Number r) {
+        if (l instanceof Long a && r instanceof Long b) {
+            return Long.compare(a, b);
+        }
+        if (l instanceof BigDecimal || r instanceof BigDecimal) {
+            return toBigDecimal(l).compareTo(toBigDecimal(r));
+        }
+        return Double.compare(l.doubleValue(), r.doubleValue());
+    }
+
+    static LocalDate toDate(Object value, String pattern) {
+        if (value == null || value instanceof LocalDate) {
+            return (LocalDate) value;
+        }
+        if (value instanceof ZonedDateTime dateTime) {
+            return dateTime.toLocalDate();
+        }
+        String str = value.toString().trim();
+        return LocalDate.parse(str, pattern == null ? DateTimeFormatter.ISO_LOCAL_DATE : formatter(pattern));
+    }
+
+    static ZonedDateTime toDateTime(Object value, String pattern) {
+        if (value == null || value instanceof ZonedDateTime) {
+            return (ZonedDateTime) value;
+        }
+        if (value instanceof LocalDate date) {
+            return date.atStartOfDay(ZoneId.systemDefault());
+        }
+        String str = value.toString().trim();
+        return LocalDateTime.parse(str, pattern == null ? DATE_TIME : formatter(pattern)).atZone(ZoneId.systemDefault());
+    }
+
+    private static DateTimeFormatter formatter(String pattern) {
+        return FORMATTERS.computeIfAbsent(pattern, DateTimeFormatter::ofPattern);
+    }
+
+    private static String str(Object value) {
+        return value == null ? null : toText(value);
+    }
+
+    private static void function(String name, int minArgs, int maxArgs, Body body) {
+        FUNCTIONS.put(name, new FunctionDef(minArgs, maxArgs, true, body));
+    }
+
+    // the first argument null give null
+    private static void nullSafe(String name, int minArgs, int maxArgs, Body body) {
+        function(name, minArgs, maxArgs, args -> args[0] == null ? null : body.apply(args));
+    }
+
+    static {
+        nullSafe("upper", 1, 1, args -> str(args[0]).toUpperCase());
+        nullSafe("lower", 1, 1, args -> str(args[0]).toLowerCase());
+        nullSafe("trim", 1, 1, args -> str(args[0]).trim());
+        nullSafe("length", 1, 1, args -> (long) str(args[0]).length());
+        nullSafe("substring", 2, 3, args -> {
+            String s = str(args[0]);
+            int from = (int) Math.min(Math.max(toNumber(args[1]).longValue(), 0), s.length());
+            int to = args.length > 2 ? (int) Math.min(Math.max(toNumber(args[2]).longValue(), from), s.length()) : s.length();
+            return s.substring(from, to);
+        });
+        nullSafe("replace", 3, 3, args -> str(args[0]).replace(toText(args[1]), toText(args[2])));
+        nullSafe("contains", 2, 2, args -> str(args[0]).contains(toText(args[1])));
+        nullSafe("startsWith", 2, 2, args -> str(args[0]).startsWith(toText(args[1])));
+        nullSafe("endsWith", 2, 2, args -> str(args[0]).endsWith(toText(args[1])));
+        function("concat", 1, Integer.MAX_VALUE, args -> {
+            StringBuilder builder = new StringBuilder();
+            for (Object arg : args) {
+                builder.append(toText(arg));
+            }
+            return builder.toString();
+        });
+        function("coalesce", 1, Integer.MAX_VALUE, args -> {
+            for (Object arg : args) {
+                if (arg != null) {
+                    return arg;
+                }
+            }
+            return null;
+        });
+        function("isEmpty", 1, 1, args -> args[0] == null || toText(args[0]).isBlank());
+        nullSafe("number", 1, 1, args -> toNumber(args[0]));
+        nullSafe("decimal", 1, 1, args -> toBigDecimal(toNumber(args[0])));
+        nullSafe("text", 1, 1, args -> toText(args[0]));
+        nullSafe("abs", 1, 1, args -> {
+            Number number = toNumber(args[0]);
+            return compareNumbers(number, 0L) < 0 ? arithmetic('-', 0L, number) : number;
+        });
+        nullSafe("round", 1, 2, args -> {
+            Number number = toNumber(args[0]);
+            int scale = args.length > 1 ? (int) toNumber(args[1]).longValue() : 0;
+            if (number instanceof Long) {
+                return number;
+            }
+            BigDecimal rounded = toBigDecimal(number).setScale(scale, RoundingMode.HALF_UP);
+            if (scale == 0) {
+                return rounded.longValueExact();
+            }
+            return number instanceof Double ? (Object) rounded.doubleValue() : (Object) rounded;
+        });
+        function("min", 2, 2, args -> args[0] == null || args[1] == null ? null : compare(args[0], args[1]) <= 0 ? args[0] : args[1]);
+        function("max", 2, 2, args -> args[0] == null || args[1] == null ? null : compare(args[0], args[1]) >= 0 ? args[0] : args[1]);
+        nullSafe("date", 1, 2, args -> toDate(args[0], args.length > 1 ? toText(args[1]) : null));
+        nullSafe("dateTime", 1, 2, args -> toDateTime(args[0], args.length > 1 ? toText(args[1]) : null));
+        nullSafe("format", 2, 2, args -> {
+            if (args[0] instanceof TemporalAccessor temporal) {
+                return formatter(toText(args[1])).format(temporal);
+            }
+            return new DecimalFormat(toText(args[1])).format(toNumber(args[0]));
+        });
+        nullSafe("year", 1, 1, args -> (long) toTemporal(args[0]).get(ChronoField.YEAR));
+        nullSafe("month", 1, 1, args -> (long) toTemporal(args[0]).get(ChronoField.MONTH_OF_YEAR));
+        nullSafe("day", 1, 1, args -> (long) toTemporal(args[0]).get(ChronoField.DAY_OF_MONTH));
+        nullSafe("addDays", 2, 2, args -> args[0] instanceof ZonedDateTime dateTime ?
+                dateTime.plusDays(toNumber(args[1]).longValue()) : toDate(args[0], null).plusDays(toNumber(args[1]).longValue()));
+        nullSafe("addMonths", 2, 2, args -> args[0] instanceof ZonedDateTime dateTime ?
+                dateTime.plusMonths(toNumber(args[1]).longValue()) : toDate(args[0], null).plusMonths(toNumber(args[1]).longValue()));
+        function("daysBetween", 2, 2, args -> args[0] == null || args[1] == null ? null :
+                ChronoUnit.DAYS.between(toDate(args[0], null), toDate(args[1], null)));
+        FUNCTIONS.put("today", new FunctionDef(0, 0, false, args -> LocalDate.now()));
+    }
+
+    private static TemporalAccessor toTemporal(Object value) {
+        return value instanceof TemporalAccessor temporal ? temporal : toDate(value, null);
+    }
+}
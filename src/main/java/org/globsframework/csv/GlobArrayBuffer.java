@@ -0,0 +1,43 @@
+package org.globsframework.csv;
+
+import org.globsframework.core.model.Glob;
+
+import java.util.Arrays;
+
+/*
+growable buffer of children, copied once in the parent when the group is closed.
+ */
+class GlobArrayBuffer {
+    private static final Glob[] EMPTY = new Glob[0];
+    private Glob[] data = EMPTY;
+    private int size;
+
+    void add(Glob glob) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, Math.max(8, size + (size >> 1)));
+        }
+        data[size++] = glob;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // return the content and clear the buffer (the storage is kept for the next group if not given)
+    Glob[] take() {
+        Glob[] result;
+        if (size == data.length) {
+            result = data;
+            data = EMPTY;
+        } else {
+            result = Arrays.copyOf(data, size);
+            Arrays.fill(data, 0, size, null);
+        }
+        size = 0;
+        return result;
+    }
+}
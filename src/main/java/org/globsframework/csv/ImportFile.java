@@ -20,13 +20,19 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAccessor;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -49,6 +55,17 @@ public class ImportFile {
     private boolean isExcel;
     private Pattern filterLine;
     private String defaultGlobTypeName = "DefaultCsv";
+    private int typeInferenceLineCount;
+    private int stringDictionaryMaxSize;
+    private long unsortedGroupingMemory;
+    private int parallelism = 1;
+    private final List<ColumnCondition> columnFilters = new ArrayList<>();
+    private RowWindow rowWindow = RowWindow.ALL;
+    private ImportPipeline pipeline;
+    private int transformBatchSize = 1;
+    private ReformaterCache reformaterCache;
+    private boolean reuseGlobs;
+    private final Map<StringField, StringDictionary> stringDictionaries = new ConcurrentHashMap<>();
 
     public static InputStreamReader createReaderWithBomCheck(InputStream inputStream, Charset defaultCharset) throws IOException {
         BOMInputStream in = new BOMInputStream(inputStream, ByteOrderMark.UTF_8, ByteOrderMark.UTF_16LE, ByteOrderMark.UTF_16BE,
@@ -105,7 +122,7 @@ public class ImportFile {
             }
             if (countPipe > countComma && countPipe > countDotComma && countPipe > countTab) {
                 separator = '|';
-                expectedField = countComma;
+                expectedField = countPipe;
             }
             if (separator != null) {
                 LOGGER.info("Found separator '" + separator + "'");
@@ -150,6 +167,18 @@ public class ImportFile {
         return globTypeBuilder.get();
     }
 
+    static public GlobType extractHeader(CsvSniffer.Result sniffed) {
+        if (!sniffed.hasHeader()) {
+            LOGGER.warn("No header found");
+            return null;
+        }
+        GlobTypeBuilder globTypeBuilder = new DefaultGlobTypeBuilder("DEFAULT");
+        for (String name : new LinkedHashSet<>(sniffed.getHeader())) {
+            globTypeBuilder.declareStringField(name);
+        }
+        return globTypeBuilder.get();
+    }
+
     private static String getValue(CsvLine record, int index, boolean trim) {
         if (index >= record.size()) {
             return null;
@@ -161,6 +190,13 @@ public class ImportFile {
         return s;
     }
 
+    private static String getValue(CsvLine record, int index, StringDictionary dictionary) {
+        if (index >= record.size()) {
+            return null;
+        }
+        return record.getTrimmedAt(index, dictionary);
+    }
+
     private static Field findField(GlobType globType, String key) {
         Field field = GlobTypeUtils.findNamedField(globType, key);
         if (field == null) {
@@ -233,6 +269,177 @@ public class ImportFile {
         return this;
     }
 
+    // without a GlobType, the type of each column is deduced from the first lines instead of being a String.
+    public ImportFile withTypeInference(int lineCount) {
+        this.typeInferenceLineCount = lineCount;
+        return this;
+    }
+
+    // share the String instances of each string column while it has less than maxSize distinct values
+    // (fields annotated with ImportStringDictionary use their own size).
+    public ImportFile withStringDictionary(int maxSize) {
+        this.stringDictionaryMaxSize = maxSize;
+        return this;
+    }
+
+    // on createComplex, lines of a same root are grouped even if not contiguous; above memoryBudget bytes
+    // (estimated) lines are spilled on temporary files.
+    public ImportFile withUnsortedGrouping(long memoryBudget) {
+        this.unsortedGroupingMemory = memoryBudget;
+        return this;
+    }
+
+    // number of threads used to build the structures of createComplex and createMulti (the order of the result is kept).
+    public ImportFile withParallelism(int threads) {
+        this.parallelism = threads;
+        return this;
+    }
+
+    // read, glob creation, transformer and consumer run on different threads (csv and fix size files, not Excel nor multi type).
+    public ImportFile withPipeline(ImportPipeline pipeline) {
+        this.pipeline = pipeline;
+        return this;
+    }
+
+    // with create and createExcel, the same glob is given to the consumer for each line (its fields are reset): a consumer
+    // that keep a glob after accept must duplicate() it. Not applied with withSample, withPipeline and withTransformBatch.
+    public ImportFile withReusedGlobs(boolean reuseGlobs) {
+        this.reuseGlobs = reuseGlobs;
+        return this;
+    }
+
+    // reformaters are taken from (and shared through) the cache instead of being built for each import.
+    public ImportFile withReformaterCache(ReformaterCache reformaterCache) {
+        this.reformaterCache = reformaterCache;
+        return this;
+    }
+
+    // the transformer is called on batch of size lines (see Reformater.CustomDataAccess.getAll); with withPipeline,
+    // the batches of the transform stage are cut in batches of size lines.
+    public ImportFile withTransformBatch(int size) {
+        this.transformBatchSize = size;
+        return this;
+    }
+
+    // the first rows produced by the importer are dropped.
+    public ImportFile withSkip(long rows) {
+        rowWindow = rowWindow.withSkip(rows);
+        return this;
+    }
+
+    // the read stop (and the file is released) once rows globs are produced.
+    public ImportFile withLimit(long rows) {
+        rowWindow = rowWindow.withLimit(rows);
+        return this;
+    }
+
+    // only size globs taken at random (in the order of the file) are produced, the whole file (or limit) is read;
+    // for a random access on a file see openFixSize and openIndexed.
+    public ImportFile withSample(int size, Random random) {
+        rowWindow = rowWindow.withSample(size, random);
+        return this;
+    }
+
+    // keep only the lines where the value of the column (name in the header, field name without header) is accepted;
+    // other lines are dropped before the creation of the glob. On multi type files, only lines of a type with this column are filtered,
+    // a rejected line of the root type drop all the lines of its group.
+    public ImportFile filter(String column, ColumnFilter filter) {
+        columnFilters.add(new ColumnCondition(column, null, filter));
+        return this;
+    }
+
+    public ImportFile filter(Field field, ColumnFilter filter) {
+        columnFilters.add(new ColumnCondition(null, field, filter));
+        return this;
+    }
+
+    static class ColumnCondition {
+        final String column;
+        final Field field;
+        final ColumnFilter filter;
+
+        ColumnCondition(String column, Field field, ColumnFilter filter) {
+            this.column = column;
+            this.field = field;
+            this.filter = filter;
+        }
+
+        boolean isOn(String header, Field field) {
+            return this.field != null ? this.field == field : this.column.equals(header);
+        }
+
+        public String toString() {
+            return field != null ? field.getFullName() : column;
+        }
+    }
+
+    // the window apply on the built globs, a stop interrupt the read of the lines (caught by the line importer).
+    private void consumeComplex(Importer importer, ComplexImporter complexImporter, Consumer<Glob> consumer) {
+        RowWindow.Cursor cursor = rowWindow.open(consumer, 0);
+        try (ComplexImporter.ConsumerWithCurrent globConsumer = createComplexConsumer(complexImporter, rowWindow.isAll() ? consumer : cursor)) {
+            importer.consume(globConsumer);
+            try {
+                globConsumer.end();
+            } catch (RowWindow.StopReading e) {
+                LOGGER.debug("Limit reached");
+            }
+        }
+        cursor.end();
+    }
+
+    private ComplexImporter.ConsumerWithCurrent createComplexConsumer(ComplexImporter complexImporter, Consumer<Glob> consumer) {
+        if (unsortedGroupingMemory > 0) {
+            if (parallelism > 1) {
+                LOGGER.warn("Parallelism ignored with unsorted grouping");
+            }
+            return complexImporter.createUnsorted(consumer, unsortedGroupingMemory);
+        }
+        if (parallelism > 1) {
+            return complexImporter.createParallel(consumer, parallelism);
+        }
+        return complexImporter.create(consumer);
+    }
+
+    public Map<String, StringDictionary> getStringDictionaries() {
+        Map<String, StringDictionary> stats = new LinkedHashMap<>();
+        for (Map.Entry<StringField, StringDictionary> entry : stringDictionaries.entrySet()) {
+            stats.put(entry.getKey().getFullName(), entry.getValue());
+        }
+        return stats;
+    }
+
+    private StringDictionary getStringDictionary(StringField field) {
+        Glob annotation = field.findAnnotation(ImportStringDictionary.KEY);
+        int maxSize = annotation != null ? annotation.get(ImportStringDictionary.MAX_SIZE, stringDictionaryMaxSize) : stringDictionaryMaxSize;
+        if (maxSize <= 0) {
+            return null;
+        }
+        return stringDictionaries.computeIfAbsent(field, f -> new StringDictionary(maxSize));
+    }
+
+    public ImportFile withSniffed(CsvSniffer.Result sniffed) {
+        withSeparator(sniffed.getSeparator());
+        withQuoteChar(sniffed.getQuoteChar());
+        withCharSet(sniffed.getCharset());
+        if (!sniffed.hasHeader()) {
+            StringBuilder headers = new StringBuilder();
+            for (int i = 1; i <= sniffed.getFieldCount(); i++) {
+                if (i > 1) {
+                    headers.append(sniffed.getSeparator());
+                }
+                headers.append("column_").append(i);
+            }
+            withHeader(headers.toString());
+        }
+        return this;
+    }
+
+    public Importer createAutoDetect(InputStream inputStream, GlobType globType) throws IOException {
+        CsvSniffer.Result sniffed = new CsvSniffer().withDefaultCharset(charSet).sniff(inputStream);
+        withSniffed(sniffed);
+        return create(createReaderFromStream(sniffed.getInputStream()), globType);
+    }
+
     public Importer create(InputStream inputStream) throws IOException {
         return create(createReaderFromStream(inputStream), null);
     }
@@ -252,66 +459,183 @@ public class ImportFile {
         String getAt(int index);
 
         int size();
+
+        default String getTrimmedAt(int index, StringDictionary dictionary) {
+            String s = getAt(index);
+            return s == null ? null : dictionary.get(s.trim());
+        }
     }
 
     interface CsvDocument {
         Map<String, Integer> getHeader();
 
         void read(Consumer<CsvLine> line, int maxFieldCount);
+
+        // release the underlying reader or workbook
+        default void close() {
+        }
+
+        // lines returned here are read again by read()
+        default List<CsvLine> peek(int lineCount) {
+            throw new RuntimeException("Can not read ahead on " + getClass().getName());
+        }
     }
 
 
+    private Reformater createReformater(GlobType globType, List<Glob> transformer, boolean propagateInFields,
+                                        Map<String, RealReformater.DataAccess> externalVariables,
+                                        Reformater.CustomDataAccessFactory dataAccessFactory) {
+        if (transformer == null || transformer.isEmpty()) {
+            return new NullReformater(globType);
+        }
+        if (reformaterCache != null) {
+            return reformaterCache.get(globType, transformer, propagateInFields, externalVariables, dataAccessFactory);
+        }
+        return new RealReformater(globType, transformer, propagateInFields, externalVariables, dataAccessFactory);
+    }
+
     public Importer createExcel(InputStream inputStream, GlobType globType) throws IOException {
-        final DefaultDataRead dataRead = new DefaultDataRead(loadExcel(inputStream), trim, reNameFrom);
+        return createExcelImporter(inputStream, globType).withWindow(rowWindow).withReusedGlobs(reuseGlobs);
+    }
+
+    private DefaultImporter createExcelImporter(InputStream inputStream, GlobType globType) throws IOException {
+        final DefaultDataRead dataRead = new DefaultDataRead(loadExcel(inputStream), trim, reNameFrom, this::getStringDictionary)
+                .withFilters(columnFilters);
         if (globType == null) {
-            globType = dataRead.createDefault(defaultGlobTypeName);
+            globType = dataRead.createDefault(defaultGlobTypeName, typeInferenceLineCount);
         }
-        if (transformer != null && !transformer.isEmpty()) {
-            reformater = new RealReformater(globType, transformer, propagateInFields, externalVariables, dataAccessFactory);
-        } else {
-            reformater = new NullReformater(globType);
-        }
-        return new DefaultImporter(globType, dataRead, reformater);
+        reformater = createReformater(globType, transformer, propagateInFields, externalVariables, dataAccessFactory);
+        return new DefaultImporter(globType, dataRead, reformater).withTransformBatch(transformBatchSize);
     }
 
     public Importer create(Reader reader, GlobType globType) throws IOException {
+        return createImporter(reader, globType).withWindow(rowWindow).withPipeline(pipeline).withReusedGlobs(reuseGlobs);
+    }
+
+    private DefaultImporter createImporter(Reader reader, GlobType globType) throws IOException {
         CsvDocument parse;
         if (withSeparator) {
             parse = load(reader);
         } else {
             parse = readFix(reader, globType);
         }
-        DefaultDataRead dataRead = new DefaultDataRead(parse, trim, reNameFrom);
+        DefaultDataRead dataRead = new DefaultDataRead(parse, trim, reNameFrom, this::getStringDictionary)
+                .withFilters(columnFilters);
         if (globType == null) {
-            globType = dataRead.createDefault(defaultGlobTypeName);
+            globType = dataRead.createDefault(defaultGlobTypeName, typeInferenceLineCount);
+        }
+        reformater = createReformater(globType, transformer, propagateInFields, externalVariables, dataAccessFactory);
+        return new DefaultImporter(globType, dataRead, reformater).withTransformBatch(transformBatchSize);
+    }
+
+    // lines are stored by column in batch of batchSize lines; the transformer is not supported here.
+    public GlobType importColumnar(Reader reader, GlobType globType, int batchSize, Consumer<ColumnarBatch> consumer) throws IOException {
+        if (batchSize <= 0) {
+            String message = "Columnar batch size must be positive, got " + batchSize;
+            LOGGER.error(message);
+            throw new RuntimeException(message);
         }
         if (transformer != null && !transformer.isEmpty()) {
-            reformater = new RealReformater(globType, transformer, propagateInFields, externalVariables, dataAccessFactory);
+            String message = "Transformer not supported on columnar import";
+            LOGGER.error(message);
+            throw new RuntimeException(message);
+        }
+        CsvDocument parse;
+        if (withSeparator) {
+            parse = load(reader);
         } else {
-            reformater = new NullReformater(globType);
+            parse = readFix(reader, globType);
+        }
+        DefaultDataRead dataRead = new DefaultDataRead(parse, trim, reNameFrom, this::getStringDictionary)
+                .withFilters(columnFilters);
+        if (globType == null) {
+            globType = dataRead.createDefault(defaultGlobTypeName, typeInferenceLineCount);
         }
-        return new DefaultImporter(globType, dataRead, reformater);
+        dataRead.readColumnar(consumer, globType, batchSize);
+        return globType;
     }
 
-    CsvDocument readFix(Reader reader, GlobType globType) {
+    public GlobType importColumnar(InputStream inputStream, GlobType globType, int batchSize, Consumer<ColumnarBatch> consumer) throws IOException {
+        return importColumnar(createReaderFromStream(inputStream), globType, batchSize, consumer);
+    }
+
+    // random access on a fix size file (single byte charset), records may be separated by a new line.
+    public RecordFile openFixSize(Path path, GlobType globType) throws IOException {
         if (globType == null) {
             throw new RuntimeException("Expecting a GlobType for fix len data structure.");
         }
+        if (charSet.newEncoder().maxBytesPerChar() != 1) {
+            String message = "Random access on fix size file expect a single byte charset, got " + charSet;
+            LOGGER.error(message);
+            throw new RuntimeException(message);
+        }
+        if (filterLine != null) {
+            LOGGER.warn("Line filter ignored on random access");
+        }
+        CsvDocument document = readFix(new StringReader(""), globType);
+        FixSizeElement[] elements = createFixSizeElements(globType);
+        int recordSize = elements.length == 0 ? 0 : elements[elements.length - 1].to;
+        ImportReader importReader = new DefaultDataRead(document, trim, reNameFrom, this::getStringDictionary)
+                .createImportReader(globType);
+        return new RecordFile.FixSize(FileChannel.open(path, StandardOpenOption.READ), globType, importReader, charSet,
+                elements, recordSize);
+    }
+
+    // random access on a delimited file: the offset of one record every recordsPerEntry is saved in a sidecar
+    // file (path + ".idx") on the first open, it is rebuilt if the file change.
+    public RecordFile openIndexed(Path path, GlobType globType, int recordsPerEntry) throws IOException {
+        if (!withSeparator) {
+            return openFixSize(path, globType);
+        }
+        if (!charSet.equals(StandardCharsets.UTF_8) && charSet.newEncoder().maxBytesPerChar() != 1) {
+            String message = "Indexed file expect utf-8 or a single byte charset, got " + charSet;
+            LOGGER.error(message);
+            throw new RuntimeException(message);
+        }
+        RecordFile.OffsetIndex index = RecordFile.Indexed.loadOrBuild(path, separator, quoteChar, header == null, recordsPerEntry);
+        DefaultDataRead dataRead;
+        try (Reader reader = createReaderFromStream(Files.newInputStream(path))) {
+            dataRead = new DefaultDataRead(load(reader), trim, reNameFrom, this::getStringDictionary);
+            if (globType == null) {
+                globType = dataRead.createDefault(defaultGlobTypeName, 0);
+            }
+        }
+        ImportReader importReader = dataRead.createImportReader(globType);
+        return new RecordFile.Indexed(FileChannel.open(path, StandardOpenOption.READ), globType, importReader, charSet,
+                createCsvFormat().build(), index);
+    }
 
-        final Map<String, Integer> header = Arrays.stream(globType.getFields()).collect(Collectors.toMap(Field::getName, Field::getIndex));
-
-        BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    private static FixSizeElement[] createFixSizeElements(GlobType globType) {
         FixSizeElementBuilder fixSizeElementBuilder = new FixSizeElementBuilder(0);
-        final FixSizeElement[] elements = Arrays.stream(globType.getFields())
+        return Arrays.stream(globType.getFields())
                 .sorted(Comparator.comparing(Field::getIndex))
                 .map(f -> fixSizeElementBuilder.next(f.getAnnotation(ExportColumnSize.KEY).get(ExportColumnSize.SIZE)))
                 .toArray(FixSizeElement[]::new);
+    }
+
+    CsvDocument readFix(Reader reader, GlobType globType) {
+        if (globType == null) {
+            throw new RuntimeException("Expecting a GlobType for fix len data structure.");
+        }
+
+        final Map<String, Integer> header = Arrays.stream(globType.getFields()).collect(Collectors.toMap(Field::getName, Field::getIndex));
+
+        BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        final FixSizeElement[] elements = createFixSizeElements(globType);
         return new CsvDocument() {
 
             public Map<String, Integer> getHeader() {
                 return header;
             }
 
+            public void close() {
+                try {
+                    bufferedReader.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Fail to close reader", e);
+                }
+            }
+
             public void read(Consumer<CsvLine> line, int maxFieldCount) {
                 String strLine;
                 try {
@@ -351,10 +675,26 @@ public class ImportFile {
         public String split(String strLine) {
             return strLine.substring(from, to);
         }
+
+        // look up the trimmed slice in the dictionary without extracting it first
+        public String split(String strLine, StringDictionary dictionary) {
+            if (to > strLine.length()) {
+                return dictionary.get(split(strLine).trim());
+            }
+            int start = from;
+            int end = to;
+            while (start < end && strLine.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && strLine.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            return dictionary.get(strLine, start, end);
+        }
     }
 
     public Importer createComplex(Reader reader, GlobType type) throws IOException {
-        Importer importer = create(reader);
+        Importer importer = createImporter(reader, null).withPipeline(pipeline);
 
         ComplexImporter complexImporter = new ComplexImporter(reformater.getResultType(), type);
 
@@ -364,16 +704,14 @@ public class ImportFile {
             }
 
             public <T extends Consumer<Glob>> T consume(T consumer) {
-                ComplexImporter.ConsumerWithCurrent globConsumer = complexImporter.create(consumer);
-                importer.consume(globConsumer);
-                globConsumer.end();
+                consumeComplex(importer, complexImporter, consumer);
                 return consumer;
             }
         };
     }
 
     public Importer createComplexExcel(InputStream reader, GlobType type) throws IOException {
-        Importer importer = createExcel(reader, null);
+        Importer importer = createExcelImporter(reader, null);
 
         ComplexImporter complexImporter = new ComplexImporter(reformater.getResultType(), type);
 
@@ -383,9 +721,7 @@ public class ImportFile {
             }
 
             public <T extends Consumer<Glob>> T consume(T consumer) {
-                ComplexImporter.ConsumerWithCurrent globConsumer = complexImporter.create(consumer);
-                importer.consume(globConsumer);
-                globConsumer.end();
+                consumeComplex(importer, complexImporter, consumer);
                 return consumer;
             }
         };
@@ -419,10 +755,11 @@ public class ImportFile {
         }
         final ExcelDocument excelDocument = new ExcelDocument(sheets, sheets.getSheetAt(0), Map.of());
         excelDocument.skipFirstLine(false);
-        DataRead dataRead = new MultiTypeDataRead(excelDocument);
+        DataRead dataRead = new MultiTypeDataRead(excelDocument, 1);
 
-        Reformater reformater = transformer == null || transformer.isEmpty() ? new NullReformater(globType) : new RealReformater(globType, transformer);
-        return new DefaultImporter(globType, dataRead, reformater);
+        Reformater reformater = createReformater(globType, transformer, false, Map.of(), RealReformater.DefaultDataAccessFactory.DEFAULT);
+        return new DefaultImporter(globType, dataRead, reformater).withWindow(rowWindow)
+                .withTransformBatch(transformBatchSize);
     }
 
     public Importer createMulti(InputStream inputStream, GlobType globType) throws IOException {
@@ -450,19 +787,22 @@ public class ImportFile {
             } else {
                 csvDocument = readFixMulti(reader, globType);
             }
-            DataRead dataRead = new MultiTypeDataRead(csvDocument);
-            Reformater reformater = transformer == null || transformer.isEmpty() ? new NullReformater(globType) : new RealReformater(globType, transformer);
-            return new DefaultImporter(globType, dataRead, reformater);
+            DataRead dataRead = new MultiTypeDataRead(csvDocument, parallelism);
+            Reformater reformater = createReformater(globType, transformer, false, Map.of(), RealReformater.DefaultDataAccessFactory.DEFAULT);
+            return new DefaultImporter(globType, dataRead, reformater).withWindow(rowWindow)
+                .withTransformBatch(transformBatchSize);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
     private static class TypedLine {
+        private final String marker;
         private final FixSizeElement[] elements;
         private Integer markerSize;
 
-        public TypedLine(GlobType globType, Integer markerSize) {
+        public TypedLine(String marker, GlobType globType, Integer markerSize) {
+            this.marker = marker;
             this.markerSize = markerSize;
             FixSizeElementBuilder fixSizeElementBuilder = new FixSizeElementBuilder(markerSize);
             elements = Arrays.stream(globType.getFields())
@@ -477,51 +817,49 @@ public class ImportFile {
             throw new RuntimeException("Expecting a GlobType for fix len data structure.");
         }
 
-        final Field[] fields = globType.getFields();
-        final Map<String, TypedLine> headerNameToTypedLine = Arrays.stream(fields).collect(
-                Collectors.toMap(
-                        f -> f.getAnnotation(CsvHeader.KEY).get(CsvHeader.name)
-                        , f -> {
-                            final Integer markerSize = f.getAnnotation(ExportColumnSize.KEY).getNotNull(ExportColumnSize.SIZE);
-                            if (f instanceof GlobField) {
-                                return new TypedLine(((GlobField) f).getTargetType(), markerSize);
-                            } else if (f instanceof GlobArrayField) {
-                                return new TypedLine(((GlobArrayField) f).getTargetType(), markerSize);
-                            } else {
-                                throw new RuntimeException("Expecting a GlobField or a GlobArrayField");
-                            }
-                        }));
+        final MarkerTrie<TypedLine> markers = new MarkerTrie<>();
+        for (Field f : globType.getFields()) {
+            final String marker = f.getAnnotation(CsvHeader.KEY).get(CsvHeader.name);
+            final Integer markerSize = f.getAnnotation(ExportColumnSize.KEY).getNotNull(ExportColumnSize.SIZE);
+            if (f instanceof GlobField) {
+                markers.put(marker, new TypedLine(marker, ((GlobField) f).getTargetType(), markerSize));
+            } else if (f instanceof GlobArrayField) {
+                markers.put(marker, new TypedLine(marker, ((GlobArrayField) f).getTargetType(), markerSize));
+            } else {
+                throw new RuntimeException("Expecting a GlobField or a GlobArrayField");
+            }
+        }
         BufferedReader bufferedReader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
 
-        final Set<Integer> collect = headerNameToTypedLine.values().stream().map(typedLine -> typedLine.markerSize)
-                .collect(Collectors.toSet());
-        if (collect.size() == 1) {
-            int size = collect.iterator().next();
-            return new CsvDocument() {
+        return new CsvDocument() {
+
+            public Map<String, Integer> getHeader() {
+                throw new RuntimeException("No header on multi");
+            }
 
-                public Map<String, Integer> getHeader() {
-                    throw new RuntimeException("No header on multi");
+            public void close() {
+                try {
+                    bufferedReader.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Fail to close reader", e);
                 }
+            }
 
-                public void read(Consumer<CsvLine> line, int maxFieldCount) {
-                    String strLine;
-                    try {
-                        while ((strLine = bufferedReader.readLine()) != null) {
-                            final String header = strLine.substring(0, size);
-                            final TypedLine typedLine = headerNameToTypedLine.get(header);
-                            if (typedLine == null) {
-                                throw new RuntimeException("Unknown header " + header);
-                            }
-                            line.accept(new SplittedWithHeaderCsvLine(header, typedLine.elements, strLine));
+            public void read(Consumer<CsvLine> line, int maxFieldCount) {
+                String strLine;
+                try {
+                    while ((strLine = bufferedReader.readLine()) != null) {
+                        final TypedLine typedLine = markers.match(strLine);
+                        if (typedLine == null) {
+                            throw new RuntimeException("Unknown header " + strLine.substring(0, Math.min(strLine.length(), markers.getMaxLength())));
                         }
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
+                        line.accept(new SplittedWithHeaderCsvLine(typedLine.marker, typedLine.elements, strLine));
                     }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
                 }
-            };
-        } else {
-            throw new RuntimeException("multi with marker of different size not managed.");
-        }
+            }
+        };
     }
 
 
@@ -543,7 +881,8 @@ public class ImportFile {
     }
 
     public DataRead getDataReader(InputStream inputStream) throws IOException {
-        return new DefaultDataRead(load(createReaderFromStream(inputStream)), trim, reNameFrom);
+        return new DefaultDataRead(load(createReaderFromStream(inputStream)), trim, reNameFrom, this::getStringDictionary)
+                .withFilters(columnFilters);
     }
 
     private CsvDocument loadExcel(InputStream inputStream) {
@@ -589,13 +928,16 @@ public class ImportFile {
         return excelDocument;
     }
 
+    private CSVFormat.Builder createCsvFormat() {
+        return CSVFormat.Builder.create(CSVFormat.DEFAULT)
+                .setAllowMissingColumnNames(true)
+                .setDelimiter(separator)
+                .setEscape('\\')
+                .setQuote(quoteChar);
+    }
+
     private CsvDocument load(Reader reader) throws IOException {
-        CSVFormat.Builder csvFormatBuilder =
-                CSVFormat.Builder.create(CSVFormat.DEFAULT)
-                        .setAllowMissingColumnNames(true)
-                        .setDelimiter(separator)
-                        .setEscape('\\')
-                        .setQuote(quoteChar);
+        CSVFormat.Builder csvFormatBuilder = createCsvFormat();
         if (header != null) {
             List<String> elements = new ArrayList<>();
             StringBuilder current = new StringBuilder();
@@ -630,6 +972,12 @@ public class ImportFile {
         boolean add(Glob glob);
 
         boolean updateAndReset(MutableGlob to);
+
+        // the last line read was rejected by a filter
+        boolean isRejected();
+
+        // filters on a column of this type
+        List<ColumnCondition> getFilters();
     }
 
     public interface Importer {
@@ -642,26 +990,61 @@ public class ImportFile {
     public interface DataRead {
 
         void read(Consumer<Glob> consumer, GlobType globType);
+
+        // called when the read is stopped before the end of the document
+        default void close() {
+        }
     }
 
     interface FieldReader {
         void read(MutableGlob mutableGlob, CsvLine record);
+
+        void read(ColumnarBatch batch, int row, CsvLine record);
     }
 
     static class DefaultDataRead implements DataRead {
         private final String reNameFrom;
+        private final Function<StringField, StringDictionary> dictionaries;
         private CsvDocument parse;
         private boolean trim;
         private int countLine = 0;
+        private List<ColumnCondition> columnFilters = List.of();
+        private long skipLines;
+        private boolean reuseGlobs;
 
-        public DefaultDataRead(CsvDocument parse, boolean trim, String reNameFrom) {
+        public DefaultDataRead(CsvDocument parse, boolean trim, String reNameFrom, Function<StringField, StringDictionary> dictionaries) {
             this.parse = parse;
             this.trim = trim;
             this.reNameFrom = reNameFrom;
+            this.dictionaries = dictionaries;
+        }
+
+        DefaultDataRead withFilters(List<ColumnCondition> columnFilters) {
+            this.columnFilters = columnFilters;
+            return this;
+        }
+
+        // one glob is read again for each line
+        DefaultDataRead withReusedGlobs(boolean reuseGlobs) {
+            this.reuseGlobs = reuseGlobs;
+            return this;
+        }
+
+        // the first accepted lines are dropped without creating their glob
+        void skipLines(long skipLines) {
+            this.skipLines = skipLines;
         }
 
-        GlobType createDefault(String defaultGlobTypeName) {
-            GlobTypeBuilder globTypeBuilder = new DefaultGlobTypeBuilder(defaultGlobTypeName != null ? defaultGlobTypeName : "DefaultCsv");
+        public void close() {
+            parse.close();
+        }
+
+        GlobType createDefault(String defaultGlobTypeName, int typeInferenceLineCount) {
+            String typeName = defaultGlobTypeName != null ? defaultGlobTypeName : "DefaultCsv";
+            if (typeInferenceLineCount > 0) {
+                return TypeInference.infer(typeName, parse.getHeader(), parse.peek(typeInferenceLineCount));
+            }
+            GlobTypeBuilder globTypeBuilder = new DefaultGlobTypeBuilder(typeName);
             Map<String, Integer> headerMap = parse.getHeader();
             for (String s1 : headerMap.keySet()) {
                 globTypeBuilder.declareStringField(s1);
@@ -670,7 +1053,82 @@ public class ImportFile {
         }
 
         public void read(Consumer<Glob> consumer, GlobType globType) {
-            ImportReaderBuilder readerBuilder = new ImportReaderBuilder(globType, trim, parse);
+            ImportReader build = createImportReader(globType);
+            MutableGlob reused = reuseGlobs ? globType.instantiate() : null;
+
+            long[] toSkip = {skipLines};
+            parse.read(record -> {
+                try {
+                    if (build.accept(record)) {
+                        if (toSkip[0] > 0) {
+                            toSkip[0]--;
+                        } else {
+                            consumer.accept(reused != null ? build.read(record, reused) : build.read(record));
+                        }
+                    }
+                    countLine++;
+                } catch (RowWindow.StopReading stop) {
+                    throw stop;
+                } catch (Exception exception) {
+                    String message = "Fail to read line : " + countLine + " : " + (record != null ? record.toString() : "");
+                    LOGGER.error(message, exception);
+                    throw new RuntimeException(message, exception);
+                }
+            }, 0);
+
+        }
+
+        void readPipelined(Consumer<Glob> consumer, GlobType globType, Function<List<Glob>, List<Glob>> transform, ImportPipeline pipeline) {
+            ImportReader build = createImportReader(globType);
+            long[] toSkip = {skipLines};
+            pipeline.run(lines -> parse.read(lines, 0), record -> {
+                try {
+                    Glob glob = null;
+                    if (build.accept(record)) {
+                        if (toSkip[0] > 0) {
+                            toSkip[0]--;
+                        } else {
+                            glob = build.read(record);
+                        }
+                    }
+                    countLine++;
+                    return glob;
+                } catch (Exception exception) {
+                    String message = "Fail to read line : " + countLine + " : " + (record != null ? record.toString() : "");
+                    LOGGER.error(message, exception);
+                    throw new RuntimeException(message, exception);
+                }
+            }, transform, consumer);
+        }
+
+        void readColumnar(Consumer<ColumnarBatch> consumer, GlobType globType, int batchSize) {
+            ImportReader build = createImportReader(globType);
+            ColumnarBatch[] current = {new ColumnarBatch(globType, batchSize)};
+            parse.read(record -> {
+                try {
+                    if (!build.accept(record)) {
+                        countLine++;
+                        return;
+                    }
+                    build.read(current[0], record);
+                    countLine++;
+                } catch (Exception exception) {
+                    String message = "Fail to read line : " + countLine + " : " + (record != null ? record.toString() : "");
+                    LOGGER.error(message, exception);
+                    throw new RuntimeException(message, exception);
+                }
+                if (current[0].isFull()) {
+                    consumer.accept(current[0]);
+                    current[0] = new ColumnarBatch(globType, batchSize);
+                }
+            }, 0);
+            if (current[0].size() != 0) {
+                consumer.accept(current[0]);
+            }
+        }
+
+        ImportReader createImportReader(GlobType globType) {
+            ImportReaderBuilder readerBuilder = new ImportReaderBuilder(globType, trim, parse, dictionaries);
             RemapName remapName = new RemapName(globType, reNameFrom);
             Map<String, Integer> headerMap = parse.getHeader();
             for (Map.Entry<String, Integer> stringIntegerEntry : headerMap.entrySet()) {
@@ -678,6 +1136,7 @@ public class ImportFile {
                 if (field == null) {
                     field = findField(globType, stringIntegerEntry.getKey());
                 }
+                readerBuilder.declareFilters(columnFilters, stringIntegerEntry.getKey(), field, stringIntegerEntry.getValue());
                 if (field != null) {
                     readerBuilder.declare(field, stringIntegerEntry.getValue());
                 } else {
@@ -685,19 +1144,8 @@ public class ImportFile {
                 }
             }
             countLine += 2; // un pour le header et un pour la ligne a lire
-            ImportReader build = readerBuilder.build();
-
-            parse.read(record -> {
-                try {
-                    consumer.accept(build.read(record));
-                    countLine++;
-                } catch (Exception exception) {
-                    String message = "Fail to read line : " + countLine + " : " + (record != null ? record.toString() : "");
-                    LOGGER.error(message, exception);
-                    throw new RuntimeException(message, exception);
-                }
-            }, 0);
-
+            readerBuilder.checkFilters(columnFilters);
+            return readerBuilder.build();
         }
 
         static class RemapName {
@@ -716,14 +1164,18 @@ public class ImportFile {
 
     static class ImportReaderBuilder {
         private final GlobType type;
+        private final Function<StringField, StringDictionary> dictionaries;
         private List<FieldReader> fieldReaders = new ArrayList<>();
+        private List<Integer> filterIndexes = new ArrayList<>();
+        private List<ColumnCondition> filters = new ArrayList<>();
         private boolean trim;
         private CsvDocument csvDocument;
 
-        ImportReaderBuilder(GlobType type, boolean trim, CsvDocument csvDocument) {
+        ImportReaderBuilder(GlobType type, boolean trim, CsvDocument csvDocument, Function<StringField, StringDictionary> dictionaries) {
             this.type = type;
             this.trim = trim;
             this.csvDocument = csvDocument;
+            this.dictionaries = dictionaries;
         }
 
         public void declare(Field field, Integer index) {
@@ -741,7 +1193,8 @@ public class ImportFile {
                 }
 
                 public void visitString(StringField field) throws Exception {
-                    fieldReaders.add(new StringFieldReader(field.hasAnnotation(ImportEmptyStringHasEmptyStringFormat.KEY), field, index, trim));
+                    fieldReaders.add(new StringFieldReader(field.hasAnnotation(ImportEmptyStringHasEmptyStringFormat.KEY), field, index, trim,
+                            dictionaries.apply(field)));
                 }
 
                 public void visitStringArray(StringArrayField field) throws Exception {
@@ -762,18 +1215,61 @@ public class ImportFile {
             });
         }
 
+        // the conditions on this column are checked on the raw value at index.
+        public void declareFilters(List<ColumnCondition> conditions, String header, Field field, int index) {
+            for (ColumnCondition condition : conditions) {
+                if (condition.isOn(header, field)) {
+                    filterIndexes.add(index);
+                    filters.add(condition);
+                }
+            }
+        }
+
+        public void checkFilters(List<ColumnCondition> conditions) {
+            for (ColumnCondition condition : conditions) {
+                if (!filters.contains(condition)) {
+                    String message = "No column found for filter on " + condition;
+                    LOGGER.error(message);
+                    throw new RuntimeException(message);
+                }
+            }
+        }
+
         ImportReader build() {
-            return new ImportReader(fieldReaders.toArray(new FieldReader[0]), type);
+            return new ImportReader(fieldReaders.toArray(new FieldReader[0]), type,
+                    filterIndexes.stream().mapToInt(Integer::intValue).toArray(),
+                    filters.stream().map(c -> c.filter).toArray(ColumnFilter[]::new), List.copyOf(filters));
         }
     }
 
     static class ImportReader {
         private final FieldReader[] fieldReaders;
         private final GlobType type;
+        private final int[] filterIndexes;
+        private final ColumnFilter[] filters;
+        private final List<ColumnCondition> conditions;
 
-        ImportReader(FieldReader[] fieldReaders, GlobType type) {
+        ImportReader(FieldReader[] fieldReaders, GlobType type, int[] filterIndexes, ColumnFilter[] filters,
+                     List<ColumnCondition> conditions) {
             this.fieldReaders = fieldReaders;
             this.type = type;
+            this.filterIndexes = filterIndexes;
+            this.filters = filters;
+            this.conditions = conditions;
+        }
+
+        List<ColumnCondition> getConditions() {
+            return conditions;
+        }
+
+        boolean accept(CsvLine record) {
+            for (int i = 0; i < filters.length; i++) {
+                String value = getValue(record, filterIndexes[i], true);
+                if (!filters[i].accept(value == null || value.isEmpty() ? null : value)) {
+                    return false;
+                }
+            }
+            return true;
         }
 
         Glob read(CsvLine record) {
@@ -783,6 +1279,23 @@ public class ImportFile {
             }
             return instantiate;
         }
+
+        Glob read(CsvLine record, MutableGlob reused) {
+            for (Field field : type.getFields()) {
+                reused.unset(field);
+            }
+            for (FieldReader fieldReader : fieldReaders) {
+                fieldReader.read(reused, record);
+            }
+            return reused;
+        }
+
+        void read(ColumnarBatch batch, CsvLine record) {
+            int row = batch.addRow();
+            for (FieldReader fieldReader : fieldReaders) {
+                fieldReader.read(batch, row, record);
+            }
+        }
     }
 
     static class IntegerFieldReader implements FieldReader {
@@ -801,10 +1314,20 @@ public class ImportFile {
         public void read(MutableGlob mutableGlob, CsvLine record) {
             String s = getValue(record, index, trim);
             if (Strings.isNotEmpty(s)) {
-                s = removeZero.matcher(s.trim()).replaceAll("");
-                mutableGlob.set(field, Integer.parseInt(s));
+                mutableGlob.set(field, parse(s));
+            }
+        }
+
+        public void read(ColumnarBatch batch, int row, CsvLine record) {
+            String s = getValue(record, index, trim);
+            if (Strings.isNotEmpty(s)) {
+                batch.set(field, row, parse(s));
             }
         }
+
+        private int parse(String s) {
+            return Integer.parseInt(removeZero.matcher(s.trim()).replaceAll(""));
+        }
     }
 
     static class BooleanFieldReader implements FieldReader {
@@ -822,6 +1345,13 @@ public class ImportFile {
                 mutableGlob.set(field, s.equalsIgnoreCase("true") || s.equalsIgnoreCase("1"));
             }
         }
+
+        public void read(ColumnarBatch batch, int row, CsvLine record) {
+            String s = getValue(record, index, true);
+            if (Strings.isNotEmpty(s)) {
+                batch.set(field, row, s.equalsIgnoreCase("true") || s.equalsIgnoreCase("1"));
+            }
+        }
     }
 
     static class LongFieldReader implements FieldReader {
@@ -840,10 +1370,20 @@ public class ImportFile {
         public void read(MutableGlob mutableGlob, CsvLine record) {
             String s = getValue(record, index, trim);
             if (Strings.isNotEmpty(s)) {
-                s = removeZero.matcher(s.trim()).replaceAll("");
-                mutableGlob.set(field, Long.parseLong(s));
+                mutableGlob.set(field, parse(s));
+            }
+        }
+
+        public void read(ColumnarBatch batch, int row, CsvLine record) {
+            String s = getValue(record, index, trim);
+            if (Strings.isNotEmpty(s)) {
+                batch.set(field, row, parse(s));
             }
         }
+
+        private long parse(String s) {
+            return Long.parseLong(removeZero.matcher(s.trim()).replaceAll(""));
+        }
     }
 
     static class DateFieldReader implements FieldReader {
@@ -866,15 +1406,29 @@ public class ImportFile {
         }
 
         public void read(MutableGlob mutableGlob, CsvLine record) {
+            LocalDate value = parse(record);
+            if (value != null) {
+                mutableGlob.set(field, value);
+            }
+        }
+
+        public void read(ColumnarBatch batch, int row, CsvLine record) {
+            LocalDate value = parse(record);
+            if (value != null) {
+                batch.set(field, row, value);
+            }
+        }
+
+        private LocalDate parse(CsvLine record) {
             final Date date = record.getAsDate(index);
             if (date != null) {
-                mutableGlob.set(field, LocalDate.ofInstant(date.toInstant(), ZoneId.systemDefault()));
-            } else {
-                String s = getValue(record, index, trim);
-                if (Strings.isNotEmpty(s)) {
-                    mutableGlob.set(field, LocalDate.from(dateTimeFormatter.parse(s.trim())));
-                }
+                return LocalDate.ofInstant(date.toInstant(), ZoneId.systemDefault());
+            }
+            String s = getValue(record, index, trim);
+            if (Strings.isNotEmpty(s)) {
+                return LocalDate.from(dateTimeFormatter.parse(s.trim()));
             }
+            return null;
         }
     }
 
@@ -901,22 +1455,36 @@ public class ImportFile {
         }
 
         public void read(MutableGlob mutableGlob, CsvLine record) {
+            ZonedDateTime value = parse(record);
+            if (value != null) {
+                mutableGlob.set(field, value);
+            }
+        }
+
+        public void read(ColumnarBatch batch, int row, CsvLine record) {
+            ZonedDateTime value = parse(record);
+            if (value != null) {
+                batch.set(field, row, value);
+            }
+        }
+
+        private ZonedDateTime parse(CsvLine record) {
             final Date date = record.getAsDate(index);
             if (date != null) {
-                mutableGlob.set(field, ZonedDateTime.ofInstant(date.toInstant(), zoneId));
-            } else {
-                String s = getValue(record, index, trim);
-                if (Strings.isNotEmpty(s)) {
-                    TemporalAccessor temporalAccessor = dateTimeFormatter.parseBest(s.trim(), ZonedDateTime::from, LocalDateTime::from, LocalDate::from);
-                    if (temporalAccessor instanceof ZonedDateTime) {
-                        mutableGlob.set(field, (ZonedDateTime) temporalAccessor);
-                    } else if (temporalAccessor instanceof LocalDateTime) {
-                        mutableGlob.set(field, ((LocalDateTime) temporalAccessor).atZone(zoneId));
-                    } else if (temporalAccessor instanceof LocalDate) {
-                        mutableGlob.set(field, ZonedDateTime.of((LocalDate) temporalAccessor, LocalTime.MIDNIGHT, zoneId));
-                    }
+                return ZonedDateTime.ofInstant(date.toInstant(), zoneId);
+            }
+            String s = getValue(record, index, trim);
+            if (Strings.isNotEmpty(s)) {
+                TemporalAccessor temporalAccessor = dateTimeFormatter.parseBest(s.trim(), ZonedDateTime::from, LocalDateTime::from, LocalDate::from);
+                if (temporalAccessor instanceof ZonedDateTime) {
+                    return (ZonedDateTime) temporalAccessor;
+                } else if (temporalAccessor instanceof LocalDateTime) {
+                    return ((LocalDateTime) temporalAccessor).atZone(zoneId);
+                } else if (temporalAccessor instanceof LocalDate) {
+                    return ZonedDateTime.of((LocalDate) temporalAccessor, LocalTime.MIDNIGHT, zoneId);
                 }
             }
+            return null;
         }
     }
 
@@ -938,27 +1506,43 @@ public class ImportFile {
                 mutableGlob.set(field, Double.parseDouble(s.trim()));
             }
         }
+
+        public void read(ColumnarBatch batch, int row, CsvLine record) {
+            String s = getValue(record, index, trim);
+            if (Strings.isNotEmpty(s)) {
+                batch.set(field, row, Double.parseDouble(s.trim()));
+            }
+        }
     }
 
     static class StringFieldReader implements FieldReader {
         final boolean emptyIsNotNull;
         final StringField field;
         final int index;
+        private final StringDictionary dictionary;
         private boolean trim;
 
-        StringFieldReader(boolean emptyIsNotNull, StringField field, int index, boolean trim) {
+        StringFieldReader(boolean emptyIsNotNull, StringField field, int index, boolean trim, StringDictionary dictionary) {
             this.emptyIsNotNull = emptyIsNotNull;
             this.field = field;
             this.index = index;
             this.trim = trim;
+            this.dictionary = dictionary;
         }
 
         public void read(MutableGlob mutableGlob, CsvLine record) {
-            String s = getValue(record, index, trim);
+            String s = dictionary == null ? getValue(record, index, trim) : getValue(record, index, dictionary);
             if (emptyIsNotNull || Strings.isNotEmpty(s)) {
                 mutableGlob.set(field, s == null ? "" : s);
             }
         }
+
+        public void read(ColumnarBatch batch, int row, CsvLine record) {
+            String s = dictionary == null ? getValue(record, index, trim) : getValue(record, index, dictionary);
+            if (emptyIsNotNull || Strings.isNotEmpty(s)) {
+                batch.set(field, row, s == null ? "" : s);
+            }
+        }
     }
 
     static class StringArrayFieldReader implements FieldReader {
@@ -977,16 +1561,30 @@ public class ImportFile {
         }
 
         public void read(MutableGlob mutableGlob, CsvLine record) {
+            String[] value = parse(record);
+            if (value != null) {
+                mutableGlob.set(field, value);
+            }
+        }
+
+        public void read(ColumnarBatch batch, int row, CsvLine record) {
+            String[] value = parse(record);
+            if (value != null) {
+                batch.set(field, row, value);
+            }
+        }
+
+        private String[] parse(CsvLine record) {
             String s = getValue(record, index, trim);
             if (Strings.isNotEmpty(s)) {
                 String[] split = s.split(separator);
                 if (trim) {
-                    mutableGlob.set(field, Arrays.stream(split).map(String::trim)
-                            .toArray(String[]::new));
-                } else {
-                    mutableGlob.set(field, split);
+                    return Arrays.stream(split).map(String::trim)
+                            .toArray(String[]::new);
                 }
+                return split;
             }
+            return null;
         }
     }
 
@@ -994,6 +1592,10 @@ public class ImportFile {
         private final GlobType globType;
         private final DataRead dataRead;
         private final Reformater reformater;
+        private RowWindow window = RowWindow.ALL;
+        private ImportPipeline pipeline;
+        private int transformBatchSize = 1;
+        private boolean reuseGlobs;
 
         public DefaultImporter(GlobType globType, DataRead dataRead, Reformater reformater) {
             this.globType = globType;
@@ -1001,16 +1603,91 @@ public class ImportFile {
             this.reformater = reformater;
         }
 
+        DefaultImporter withWindow(RowWindow window) {
+            this.window = window;
+            return this;
+        }
+
+        DefaultImporter withPipeline(ImportPipeline pipeline) {
+            this.pipeline = pipeline;
+            return this;
+        }
+
+        DefaultImporter withTransformBatch(int transformBatchSize) {
+            this.transformBatchSize = transformBatchSize;
+            return this;
+        }
+
+        DefaultImporter withReusedGlobs(boolean reuseGlobs) {
+            this.reuseGlobs = reuseGlobs;
+            return this;
+        }
+
         public GlobType getType() {
             return reformater.getResultType();
         }
 
         public <T extends Consumer<Glob>> T consume(T consumer) {
-            dataRead.read(glob -> {
-                consumer.accept(reformater.transform(glob));
-            }, globType);
+            long skipped = 0;
+            if (window.getSkip() > 0 && dataRead instanceof DefaultDataRead defaultDataRead) {
+                // one glob by line: skip before reading the line
+                defaultDataRead.skipLines(window.getSkip());
+                skipped = window.getSkip();
+            }
+            RowWindow.Cursor cursor = window.open(consumer, skipped);
+            Consumer<Glob> output = window.isAll() ? consumer : cursor;
+            try {
+                if (pipeline != null && dataRead instanceof DefaultDataRead defaultDataRead) {
+                    defaultDataRead.readPipelined(output, globType, this::transformPipelined, pipeline);
+                } else if (transformBatchSize > 1) {
+                    List<Glob> batch = new ArrayList<>(transformBatchSize);
+                    dataRead.read(glob -> {
+                        batch.add(glob);
+                        if (batch.size() == transformBatchSize) {
+                            transformBatch(batch, output);
+                        }
+                    }, globType);
+                    transformBatch(batch, output);
+                } else if (reuseGlobs && !window.isSampled() && dataRead instanceof DefaultDataRead defaultDataRead) {
+                    // nothing keep the globs between two lines (no batch, pipeline nor sample)
+                    MutableGlob result = reformater.getResultType().instantiate();
+                    defaultDataRead.withReusedGlobs(true)
+                            .read(glob -> output.accept(reformater.transformInto(glob, result)), globType);
+                } else {
+                    dataRead.read(glob -> {
+                        output.accept(reformater.transform(glob));
+                    }, globType);
+                }
+            } catch (RowWindow.StopReading e) {
+                dataRead.close();
+            }
+            cursor.end();
             return consumer;
         }
+
+        // a batch of the pipeline, given to transformAll by chunk of transformBatchSize
+        private List<Glob> transformPipelined(List<Glob> globs) {
+            List<Glob> transformed = new ArrayList<>(globs.size());
+            if (transformBatchSize > 1) {
+                for (int i = 0; i < globs.size(); i += transformBatchSize) {
+                    transformed.addAll(reformater.transformAll(new ArrayList<>(globs.subList(i, Math.min(globs.size(), i + transformBatchSize)))));
+                }
+            } else {
+                for (Glob glob : globs) {
+                    transformed.add(reformater.transform(glob));
+                }
+            }
+            return transformed;
+        }
+
+        private void transformBatch(List<Glob> batch, Consumer<Glob> output) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<Glob> transformed = reformater.transformAll(new ArrayList<>(batch));
+            batch.clear();
+            transformed.forEach(output);
+        }
     }
 
     private static class NullReformater implements Reformater {
@@ -1033,17 +1710,47 @@ public class ImportFile {
 
     private static class CsvDocumentFromCSVParse implements CsvDocument {
         private final CSVParser parse;
+        private final Iterator<CSVRecord> iterator;
+        private final Deque<CsvLine> peeked = new ArrayDeque<>();
 
         public CsvDocumentFromCSVParse(CSVParser parse) {
             this.parse = parse;
+            this.iterator = parse.iterator();
         }
 
         public Map<String, Integer> getHeader() {
             return parse.getHeaderMap();
         }
 
+        public void close() {
+            try {
+                parse.close();
+            } catch (IOException e) {
+                LOGGER.warn("Fail to close csv", e);
+            }
+        }
+
+        public List<CsvLine> peek(int lineCount) {
+            while (peeked.size() < lineCount) {
+                CsvLine line = next();
+                if (line == null) {
+                    break;
+                }
+                peeked.add(line);
+            }
+            return new ArrayList<>(peeked);
+        }
+
         public void read(Consumer<CsvLine> line, int maxFieldCount) {
-            for (CSVRecord strings : parse) {
+            CsvLine csvLine;
+            while ((csvLine = peeked.isEmpty() ? next() : peeked.poll()) != null) {
+                line.accept(csvLine);
+            }
+        }
+
+        private CsvLine next() {
+            while (iterator.hasNext()) {
+                CSVRecord strings = iterator.next();
                 boolean isValide = false;
                 for (String string : strings) {
                     if (Strings.isNotEmpty(string)) {
@@ -1052,7 +1759,7 @@ public class ImportFile {
                     }
                 }
                 if (isValide) {
-                    line.accept(new CsvLine() {
+                    return new CsvLine() {
                         public Date getAsDate(int index) {
                             return null;
                         }
@@ -1068,11 +1775,12 @@ public class ImportFile {
                         public String toString() {
                             return strings.toString();
                         }
-                    });
+                    };
                 } else {
                     LOGGER.info("Ignore empty line");
                 }
             }
+            return null;
         }
     }
 
@@ -1094,17 +1802,39 @@ public class ImportFile {
             return headers;
         }
 
+        public void close() {
+            try {
+                workbook.close();
+            } catch (IOException e) {
+                LOGGER.warn("Fail to close workbook", e);
+            }
+        }
+
         void skipFirstLine(boolean skipFirstLine) {
             this.skipFirstLine = skipFirstLine;
         }
 
+        public List<CsvLine> peek(int lineCount) {
+            List<CsvLine> lines = new ArrayList<>();
+            read(new Consumer<>() {
+                public void accept(CsvLine csvLine) {
+                    lines.add(csvLine);
+                }
+            }, 0, lineCount);
+            return lines;
+        }
+
         public void read(Consumer<CsvLine> line, int maxFieldCount) {
+            read(line, maxFieldCount, Integer.MAX_VALUE);
+        }
+
+        private void read(Consumer<CsvLine> line, int maxFieldCount, int maxLineCount) {
             int currentPos = skipFirstLine ? 0 : -1;
             final int maxSize = Math.max(maxFieldCount, headers.size());
-            Map<Integer, Cell> realLine = new LinkedHashMap<>();
-            while (true) {
+            int lineCount = 0;
+            while (lineCount++ < maxLineCount) {
                 currentPos++;
-                realLine.clear();
+                Map<Integer, Cell> realLine = new LinkedHashMap<>();
                 boolean hasAValue = false;
                 final Row row = sheet.getRow(currentPos);
                 if (row == null) {
@@ -1188,7 +1918,7 @@ public class ImportFile {
         }
     }
 
-    private static class SplittedCsvLine implements CsvLine {
+    static class SplittedCsvLine implements CsvLine {
         private final FixSizeElement[] elements;
         private final String strLine;
 
@@ -1205,6 +1935,10 @@ public class ImportFile {
             return elements[index].split(strLine);
         }
 
+        public String getTrimmedAt(int index, StringDictionary dictionary) {
+            return elements[index].split(strLine, dictionary);
+        }
+
         public int size() {
             return elements.length;
         }
@@ -1237,6 +1971,13 @@ public class ImportFile {
             return elements[index - 1].split(strLine);
         }
 
+        public String getTrimmedAt(int index, StringDictionary dictionary) {
+            if (index == 0) {
+                return dictionary.get(headerName.trim());
+            }
+            return elements[index - 1].split(strLine, dictionary);
+        }
+
         public int size() {
             return elements.length + 1;
         }
@@ -1248,35 +1989,56 @@ public class ImportFile {
 
     private class MultiTypeDataRead implements DataRead {
 
+        static final int LINES_PER_TASK = 1024;
         private CsvDocument csvDocument;
+        private final int parallelism;
+        private final Function<StringField, StringDictionary> dictionaries = ImportFile.this::getStringDictionary;
 
-        public MultiTypeDataRead(CsvDocument csvDocument) {
+        public MultiTypeDataRead(CsvDocument csvDocument, int parallelism) {
             this.csvDocument = csvDocument;
+            this.parallelism = parallelism;
+        }
+
+        public void close() {
+            csvDocument.close();
         }
 
         public void read(Consumer<Glob> consumer, GlobType globType) {
             int maxFieldCount = 0;
             try {
                 Field[] fields = globType.getFields();
-                List<UpdateLine> lines = new ArrayList<>();
+                boolean withHeader = false;
                 for (Field field : fields) {
                     Glob annotation = field.findAnnotation(CsvHeader.KEY);
                     if (annotation != null) {
+                        withHeader |= annotation.isTrue(CsvHeader.firstLineIsHeader);
                         if (field instanceof GlobField) {
-                            lines.add(new SingleUpdateLine(field, annotation));
                             maxFieldCount = Math.max(maxFieldCount, ((GlobField) field).getTargetType().getFieldCount() + 1);
                         } else if (field instanceof GlobArrayField) {
-                            lines.add(new MultiLineUpdateLine(field, annotation));
                             maxFieldCount = Math.max(maxFieldCount, ((GlobArrayField) field).getTargetType().getFieldCount() + 1);
                         }
                     }
                 }
+                List<UpdateLine> lines = createUpdateLines(globType, dictionaries);
+
+                if (parallelism > 1 && !lines.isEmpty()) {
+                    String rootMarker = lines.get(0).getMarkerName();
+                    boolean uniqueRootMarker = lines.stream().filter(l -> rootMarker.equals(l.getMarkerName())).count() == 1;
+                    if (withHeader || !uniqueRootMarker) {
+                        LOGGER.info("Sequential read : parallel read need a unique marker on the first field and no header line");
+                    } else {
+                        readParallel(consumer, globType, maxFieldCount, rootMarker, lines.get(0) instanceof SingleUpdateLine);
+                        return;
+                    }
+                }
 
-                Iterator<UpdateLine> first = lines.iterator();
-                final CsvLineConsumer line = new CsvLineConsumer(first, consumer, globType, lines);
+                final CsvLineConsumer line = new CsvLineConsumer(consumer, globType, lines);
                 csvDocument.read(line, maxFieldCount);
                 line.complete();
+                checkFilters(List.of(lines));
 
+            } catch (RowWindow.StopReading stop) {
+                throw stop;
             } catch (Exception e) {
                 String msg = "error during parsing";
                 LOGGER.error(msg, e);
@@ -1284,12 +2046,124 @@ public class ImportFile {
             }
         }
 
-        private void pushGlob(Consumer<Glob> consumer, GlobType globType, List<UpdateLine> lines) {
+        private List<UpdateLine> createUpdateLines(GlobType globType, Function<StringField, StringDictionary> dictionaries) {
+            List<UpdateLine> lines = new ArrayList<>();
+            for (Field field : globType.getFields()) {
+                Glob annotation = field.findAnnotation(CsvHeader.KEY);
+                if (annotation != null) {
+                    if (field instanceof GlobField) {
+                        lines.add(new SingleUpdateLine(field, annotation, dictionaries));
+                    } else if (field instanceof GlobArrayField) {
+                        lines.add(new MultiLineUpdateLine(field, annotation, dictionaries));
+                    }
+                }
+            }
+            return lines;
+        }
+
+        /*
+        the file is cut before a line with the marker of the first field: a new root glob always starts there if the first
+        field is a GlobField, or if the previous line has another marker for a GlobArrayField.
+        Segments are read on worker threads with their own UpdateLine.
+        String dictionaries are not thread safe and are not used here.
+         */
+        private void readParallel(Consumer<Glob> consumer, GlobType globType, int maxFieldCount, String rootMarker, boolean singleRoot) {
+            Function<StringField, StringDictionary> noDictionary = field -> null;
+            List<List<UpdateLine>> allLines = Collections.synchronizedList(new ArrayList<>());
+            ThreadLocal<List<UpdateLine>> workerLines = ThreadLocal.withInitial(() -> {
+                List<UpdateLine> lines = createUpdateLines(globType, noDictionary);
+                allLines.add(lines);
+                return lines;
+            });
+            try (OrderedExecutor<List<Glob>> executor = new OrderedExecutor<>("multi-import", parallelism, roots -> roots.forEach(consumer))) {
+                SegmentSplitter splitter = new SegmentSplitter(rootMarker, singleRoot, segment -> executor.submit(() -> {
+                    List<Glob> roots = new ArrayList<>();
+                    CsvLineConsumer lineConsumer = new CsvLineConsumer(roots::add, globType, workerLines.get());
+                    for (CsvLine csvLine : segment) {
+                        lineConsumer.accept(csvLine);
+                    }
+                    lineConsumer.complete();
+                    return roots;
+                }));
+                csvDocument.read(splitter, maxFieldCount);
+                splitter.flush();
+                executor.finish();
+            }
+            checkFilters(allLines.isEmpty() ? List.of(createUpdateLines(globType, noDictionary)) : allLines);
+        }
+
+        // each filter must be on a column of one of the types (found in the header of the type if read)
+        private void checkFilters(List<List<UpdateLine>> allLines) {
+            Set<ColumnCondition> found = new HashSet<>();
+            for (List<UpdateLine> lines : allLines) {
+                for (UpdateLine line : lines) {
+                    found.addAll(line.getFilters());
+                }
+            }
+            for (ColumnCondition condition : columnFilters) {
+                if (!found.contains(condition)) {
+                    String message = "No column found for filter on " + condition;
+                    LOGGER.error(message);
+                    throw new RuntimeException(message);
+                }
+            }
+        }
+
+        private List<ColumnCondition> filtersOn(ImportReader importReader, GlobType targetType) {
+            if (importReader != null) {
+                return importReader.getConditions();
+            }
+            List<ColumnCondition> conditions = new ArrayList<>();
+            for (ColumnCondition condition : columnFilters) {
+                for (Field field : targetType.getFields()) {
+                    if (condition.isOn(field.getName(), field)) {
+                        conditions.add(condition);
+                    }
+                }
+            }
+            return conditions;
+        }
+
+        private static class SegmentSplitter implements Consumer<CsvLine> {
+            private final String rootMarker;
+            private final boolean singleRoot;
+            private final Consumer<List<CsvLine>> segmentConsumer;
+            private List<CsvLine> segment = new ArrayList<>();
+            private String previousMarker;
+
+            SegmentSplitter(String rootMarker, boolean singleRoot, Consumer<List<CsvLine>> segmentConsumer) {
+                this.rootMarker = rootMarker;
+                this.singleRoot = singleRoot;
+                this.segmentConsumer = segmentConsumer;
+            }
+
+            public void accept(CsvLine csvLine) {
+                String marker = csvLine.getAt(0);
+                if (segment.size() >= LINES_PER_TASK && rootMarker.equals(marker) && (singleRoot || !rootMarker.equals(previousMarker))) {
+                    flush();
+                }
+                previousMarker = marker;
+                segment.add(csvLine);
+            }
+
+            void flush() {
+                if (!segment.isEmpty()) {
+                    segmentConsumer.accept(segment);
+                    segment = new ArrayList<>();
+                }
+            }
+        }
+
+        // a group of which all the lines were rejected by a filter is not pushed
+        private void pushGlob(Consumer<Glob> consumer, GlobType globType, List<UpdateLine> lines, boolean filtered) {
             MutableGlob res = globType.instantiate();
             boolean hasUpdate = false;
             for (UpdateLine line : lines) {
                 hasUpdate |= line.updateAndReset(res);
             }
+            if (!hasUpdate && filtered) {
+                return;
+            }
             if (!hasUpdate) {
                 LOGGER.error("Empty loop");
                 throw new RuntimeException("Empty loop");
@@ -1297,9 +2171,10 @@ public class ImportFile {
             consumer.accept(res);
         }
 
-        private ImportReader initImportReader(GlobType targetType, Glob csvHeader, CsvLine record) {
+        private ImportReader initImportReader(GlobType targetType, Glob csvHeader, CsvLine record,
+                                              Function<StringField, StringDictionary> dictionaries) {
             if (csvHeader.isTrue(CsvHeader.firstLineIsHeader)) {
-                ImportReaderBuilder readerBuilder = new ImportReaderBuilder(targetType, trim, csvDocument);
+                ImportReaderBuilder readerBuilder = new ImportReaderBuilder(targetType, trim, csvDocument, dictionaries);
                 DefaultDataRead.RemapName remapName = new DefaultDataRead.RemapName(targetType, reNameFrom);
                 for (int i = 1; i < record.size(); i++) {
                     String key = record.getAt(i);
@@ -1307,6 +2182,7 @@ public class ImportFile {
                     if (field == null) {
                         field = findField(targetType, key);
                     }
+                    readerBuilder.declareFilters(columnFilters, key, field, i);
                     if (field != null) {
                         readerBuilder.declare(field, i);
                     } else {
@@ -1315,12 +2191,13 @@ public class ImportFile {
                 }
                 return readerBuilder.build();
             } else {
-                ImportReaderBuilder importReaderBuilder = new ImportReaderBuilder(targetType, trim, csvDocument);
+                ImportReaderBuilder importReaderBuilder = new ImportReaderBuilder(targetType, trim, csvDocument, dictionaries);
                 targetType.streamFields().forEach(new Consumer<>() {
                     int i = 0;
 
                     public void accept(Field f) {
                         importReaderBuilder.declare(f, ++i);
+                        importReaderBuilder.declareFilters(columnFilters, f.getName(), f, i);
                     }
                 });
                 ImportReader build = importReaderBuilder.build();
@@ -1334,27 +2211,43 @@ public class ImportFile {
             private final GlobType targetType;
             private final boolean csvHeaderTrue;
             private boolean isFirst = true;
+            private boolean rejected;
+            private final Function<StringField, StringDictionary> dictionaries;
             ImportReader importReaderBuilder;
             Glob got;
 
-            public SingleUpdateLine(Field field, Glob csvHeader) {
+            public SingleUpdateLine(Field field, Glob csvHeader, Function<StringField, StringDictionary> dictionaries) {
                 this.field = field;
                 this.csvHeader = csvHeader;
+                this.dictionaries = dictionaries;
                 targetType = ((GlobField) field).getTargetType();
                 csvHeaderTrue = csvHeader.isTrue(CsvHeader.firstLineIsHeader);
             }
 
             public Optional<Glob> read(CsvLine record) {
                 if (importReaderBuilder == null) {
-                    this.importReaderBuilder = initImportReader(targetType, csvHeader, record);
+                    this.importReaderBuilder = initImportReader(targetType, csvHeader, record, dictionaries);
                 }
+                rejected = false;
                 if (csvHeaderTrue && isFirst) {
                     isFirst = false;
                     return Optional.empty();
                 }
+                if (!importReaderBuilder.accept(record)) {
+                    rejected = true;
+                    return Optional.empty();
+                }
                 return Optional.of(importReaderBuilder.read(record));
             }
 
+            public boolean isRejected() {
+                return rejected;
+            }
+
+            public List<ColumnCondition> getFilters() {
+                return filtersOn(importReaderBuilder, targetType);
+            }
+
             public String getMarkerName() {
                 return csvHeader.get(CsvHeader.name);
             }
@@ -1382,33 +2275,49 @@ public class ImportFile {
         }
 
         private class MultiLineUpdateLine implements UpdateLine {
-            final List<Glob> gots;
+            final GlobArrayBuffer gots;
             private final Field field;
             private final Glob csvHeader;
             private final GlobType targetType;
             private final boolean csvHeaderTrue;
             private boolean isFirst = true;
+            private boolean rejected;
+            private final Function<StringField, StringDictionary> dictionaries;
             ImportReader importReaderBuilder;
 
-            public MultiLineUpdateLine(Field field, Glob csvHeader) {
+            public MultiLineUpdateLine(Field field, Glob csvHeader, Function<StringField, StringDictionary> dictionaries) {
                 this.field = field;
                 this.csvHeader = csvHeader;
-                gots = new ArrayList<>();
+                this.dictionaries = dictionaries;
+                gots = new GlobArrayBuffer();
                 targetType = ((GlobArrayField) field).getTargetType();
                 csvHeaderTrue = csvHeader.isTrue(CsvHeader.firstLineIsHeader);
             }
 
             public Optional<Glob> read(CsvLine record) {
                 if (this.importReaderBuilder == null) {
-                    this.importReaderBuilder = initImportReader(targetType, csvHeader, record);
+                    this.importReaderBuilder = initImportReader(targetType, csvHeader, record, dictionaries);
                 }
+                rejected = false;
                 if (csvHeaderTrue && isFirst) {
                     isFirst = false;
                     return Optional.empty();
                 }
+                if (!importReaderBuilder.accept(record)) {
+                    rejected = true;
+                    return Optional.empty();
+                }
                 return Optional.of(importReaderBuilder.read(record));
             }
 
+            public boolean isRejected() {
+                return rejected;
+            }
+
+            public List<ColumnCondition> getFilters() {
+                return filtersOn(importReaderBuilder, targetType);
+            }
+
             public String getMarkerName() {
                 return csvHeader.get(CsvHeader.name);
             }
@@ -1421,8 +2330,7 @@ public class ImportFile {
             public boolean updateAndReset(MutableGlob to) {
                 isFirst = true;
                 if (!gots.isEmpty()) {
-                    to.set(((GlobArrayField) field), gots.toArray(Glob[]::new));
-                    gots.clear();
+                    to.set(((GlobArrayField) field), gots.take());
                     return true;
                 } else {
                     return false;
@@ -1430,52 +2338,106 @@ public class ImportFile {
             }
         }
 
+        /*
+        the UpdateLine are in the order of the fields: a marker at or after the current slot continue the current glob,
+        a marker before it (or reading a single line at the last slot) close it.
+         */
         private class CsvLineConsumer implements Consumer<CsvLine> {
-            private Iterator<UpdateLine> first;
             private final Consumer<Glob> consumer;
             private final GlobType globType;
             private final List<UpdateLine> lines;
-            UpdateLine current;
+            private final Map<String, int[]> markerToSlots = new HashMap<>();
+            private final UpdateLine[] slots;
+            private int current;
             boolean push;
+            // a root line was rejected: its lines are dropped up to the next root line
+            private boolean skipGroup;
+            private boolean rejectedInGroup;
 
-            public CsvLineConsumer(Iterator<UpdateLine> first, Consumer<Glob> consumer, GlobType globType, List<UpdateLine> lines) {
-                this.first = first;
+            public CsvLineConsumer(Consumer<Glob> consumer, GlobType globType, List<UpdateLine> lines) {
                 this.consumer = consumer;
                 this.globType = globType;
                 this.lines = lines;
-                current = first.next();
+                slots = lines.toArray(new UpdateLine[0]);
+                for (int i = 0; i < slots.length; i++) {
+                    int slot = i;
+                    markerToSlots.merge(slots[i].getMarkerName(), new int[]{slot}, (s1, s2) -> {
+                        int[] merged = Arrays.copyOf(s1, s1.length + 1);
+                        merged[s1.length] = slot;
+                        return merged;
+                    });
+                }
+                current = 0;
                 push = false;
             }
 
             public void accept(CsvLine csvLine) {
                 String h = csvLine.getAt(0);
-                while (!current.getMarkerName().equals(h)) {
-                    if (!first.hasNext()) {
-                        push = true;
-                        pushGlob(consumer, globType, lines);
-                        first = lines.iterator();
-                        current = first.next();
-                    } else {
-                        current = first.next();
+                int[] candidates = markerToSlots.get(h);
+                if (candidates == null) {
+                    String message = "Unknown marker '" + h + "' expecting one of " + markerToSlots.keySet() + " in " + csvLine;
+                    LOGGER.error(message);
+                    throw new RuntimeException(message);
+                }
+                if (skipGroup) {
+                    if (candidates[0] != 0) {
+                        return;
+                    }
+                    skipGroup = false;
+                    resetGroup();
+                }
+                moveTo(candidates);
+                UpdateLine updateLine = slots[current];
+                Optional<Glob> readed = updateLine.read(csvLine);
+                if (updateLine.isRejected()) {
+                    rejectedInGroup = true;
+                    if (current == 0 && updateLine instanceof SingleUpdateLine) {
+                        skipGroup = true;
+                        return;
                     }
                 }
-                Optional<Glob> readed = current.read(csvLine);
                 push &= readed.isEmpty();
-                if (readed.isPresent() && !current.add(readed.get())) {
-                    if (!first.hasNext()) {
-                        push = true;
-                        pushGlob(consumer, globType, lines);
-                        first = lines.iterator();
-                        current = first.next();
+                if (readed.isPresent() && !updateLine.add(readed.get())) {
+                    if (current == slots.length - 1) {
+                        wrap();
                     } else {
-                        current = first.next();
+                        current++;
+                    }
+                }
+            }
+
+            private void moveTo(int[] candidates) {
+                for (int slot : candidates) {
+                    if (slot >= current) {
+                        current = slot;
+                        return;
                     }
                 }
+                wrap();
+                current = candidates[0];
+            }
+
+            private void wrap() {
+                push = true;
+                pushGlob(consumer, globType, lines, rejectedInGroup);
+                rejectedInGroup = false;
+                current = 0;
+            }
+
+            // drop what was read of the rejected group
+            private void resetGroup() {
+                MutableGlob dropped = globType.instantiate();
+                for (UpdateLine line : lines) {
+                    line.updateAndReset(dropped);
+                }
+                current = 0;
+                push = true;
+                rejectedInGroup = false;
             }
 
             public void complete() {
-                if (!push) {
-                    pushGlob(consumer, globType, lines);
+                if (!push && !skipGroup) {
+                    pushGlob(consumer, globType, lines, rejectedInGroup);
                 }
             }
         }
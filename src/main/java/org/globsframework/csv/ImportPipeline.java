@@ -0,0 +1,268 @@
+package org.globsframework.csv;
+
+import org.globsframework.core.model.Glob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/*
+run an import on 4 threads : read and split the lines, create the globs, transform them and, on the caller thread,
+give them to the consumer. Stages exchange batches of batchSize elements through single producer / single consumer
+ring buffers of ringCapacity batches. See ImportFile.withPipeline; the stats of the last run are kept here.
+ */
+public class ImportPipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImportPipeline.class);
+    private static final Object[] END = new Object[0];
+    private final int batchSize;
+    private final int ringCapacity;
+    private final WaitStrategy waitStrategy;
+    private volatile List<StageStats> stats = List.of();
+
+    public ImportPipeline(int batchSize, int ringCapacity, WaitStrategy waitStrategy) {
+        this.batchSize = batchSize;
+        this.ringCapacity = ringCapacity;
+        this.waitStrategy = waitStrategy;
+    }
+
+    public ImportPipeline() {
+        this(512, 64, WaitStrategy.PARK);
+    }
+
+    public List<StageStats> getStats() {
+        return stats;
+    }
+
+    public enum WaitStrategy {
+        // lowest latency, burn a core per waiting stage
+        SPIN,
+        YIELD,
+        // spin a little then park: idle stages do not use cpu
+        PARK;
+
+        void idle(int count) {
+            switch (this) {
+                case SPIN -> Thread.onSpinWait();
+                case YIELD -> Thread.yield();
+                case PARK -> {
+                    if (count < 100) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(50_000);
+                    }
+                }
+            }
+        }
+    }
+
+    public static class StageStats {
+        private final String name;
+        private final SpscRingBuffer<Object[]> output;
+        private volatile long items;
+        private volatile long waitNanos;
+        private volatile long startNanos;
+        private volatile long endNanos;
+        private volatile int maxQueueDepth;
+
+        StageStats(String name, SpscRingBuffer<Object[]> output) {
+            this.name = name;
+            this.output = output;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getItems() {
+            return items;
+        }
+
+        // time blocked on an empty input or a full output
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        public long getElapsedNanos() {
+            return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+        }
+
+        public double getItemsPerSecond() {
+            long elapsed = getElapsedNanos();
+            return elapsed == 0 ? 0 : items * 1_000_000_000. / elapsed;
+        }
+
+        // number of batches waiting for the next stage
+        public int getQueueDepth() {
+            return output == null ? 0 : output.size();
+        }
+
+        public int getMaxQueueDepth() {
+            return maxQueueDepth;
+        }
+
+        void addWait(long nanos) {
+            waitNanos += nanos;
+        }
+
+        void addItems(int count) {
+            items += count;
+            if (output != null) {
+                maxQueueDepth = Math.max(maxQueueDepth, output.size());
+            }
+        }
+
+        public String toString() {
+            return name + " : " + items + " items, " + (long) getItemsPerSecond() + "/s, wait " + waitNanos / 1_000_000 + "ms, queue " +
+                   getQueueDepth() + " (max " + maxQueueDepth + ")";
+        }
+    }
+
+    /*
+    decode may return null to drop a line; transform is called on each batch of decoded globs.
+    An exception in a stage stop the others and is thrown here; an exception of the sink (as RowWindow.StopReading)
+    stop the stages before being thrown.
+     */
+    void run(Consumer<Consumer<ImportFile.CsvLine>> source, Function<ImportFile.CsvLine, Glob> decode,
+             Function<List<Glob>, List<Glob>> transform, Consumer<Glob> sink) {
+        SpscRingBuffer<Object[]> lines = new SpscRingBuffer<>(ringCapacity, waitStrategy);
+        SpscRingBuffer<Object[]> decoded = new SpscRingBuffer<>(ringCapacity, waitStrategy);
+        SpscRingBuffer<Object[]> transformed = new SpscRingBuffer<>(ringCapacity, waitStrategy);
+        StageStats readStats = new StageStats("read", lines);
+        StageStats decodeStats = new StageStats("decode", decoded);
+        StageStats transformStats = new StageStats("transform", transformed);
+        StageStats consumeStats = new StageStats("consume", null);
+        stats = List.of(readStats, decodeStats, transformStats, consumeStats);
+        Run run = new Run();
+        Thread[] threads = {
+                run.start("import-read", readStats, () -> {
+                    Object[][] batch = {new Object[batchSize]};
+                    int[] size = {0};
+                    source.accept(line -> {
+                        batch[0][size[0]++] = line;
+                        if (size[0] == batchSize) {
+                            run.push(lines, batch[0], readStats);
+                            batch[0] = new Object[batchSize];
+                            size[0] = 0;
+                        }
+                    });
+                    if (size[0] != 0) {
+                        run.push(lines, Arrays.copyOf(batch[0], size[0]), readStats);
+                    }
+                    run.push(lines, END, readStats);
+                }),
+                run.start("import-decode", decodeStats, () -> run.map(lines, decoded, decodeStats,
+                        line -> decode.apply((ImportFile.CsvLine) line))),
+                run.start("import-transform", transformStats, () -> run.mapBatch(decoded, transformed, transformStats,
+                        batch -> {
+                            List<Glob> globs = new ArrayList<>(batch.length);
+                            for (Object glob : batch) {
+                                globs.add((Glob) glob);
+                            }
+                            return transform.apply(globs).toArray();
+                        }))
+        };
+        consumeStats.startNanos = System.nanoTime();
+        try {
+            Object[] batch;
+            while ((batch = transformed.take(run::isStopped, consumeStats)) != null && batch != END) {
+                for (Object glob : batch) {
+                    sink.accept((Glob) glob);
+                }
+                consumeStats.addItems(batch.length);
+            }
+        } catch (RuntimeException e) {
+            run.stopped = true;
+            throw e;
+        } finally {
+            consumeStats.endNanos = System.nanoTime();
+            run.join(threads);
+        }
+        if (run.failure != null) {
+            if (run.failure instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Fail in import pipeline", run.failure);
+        }
+    }
+
+    private class Run {
+        private volatile boolean stopped;
+        private volatile Throwable failure;
+
+        boolean isStopped() {
+            return stopped;
+        }
+
+        Thread start(String name, StageStats stageStats, Runnable stage) {
+            Thread thread = new Thread(() -> {
+                stageStats.startNanos = System.nanoTime();
+                try {
+                    stage.run();
+                } catch (RowWindow.StopReading e) {
+                    // stopped by another stage
+                } catch (Throwable e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    stopped = true;
+                } finally {
+                    stageStats.endNanos = System.nanoTime();
+                }
+            }, name);
+            thread.setDaemon(true);
+            thread.start();
+            return thread;
+        }
+
+        void push(SpscRingBuffer<Object[]> output, Object[] batch, StageStats stageStats) {
+            if (!output.put(batch, this::isStopped, stageStats)) {
+                throw new RowWindow.StopReading();
+            }
+            stageStats.addItems(batch.length);
+        }
+
+        void map(SpscRingBuffer<Object[]> input, SpscRingBuffer<Object[]> output, StageStats stageStats, Function<Object, Object> function) {
+            mapBatch(input, output, stageStats, batch -> {
+                Object[] result = new Object[batch.length];
+                int size = 0;
+                for (Object element : batch) {
+                    Object value = function.apply(element);
+                    if (value != null) {
+                        result[size++] = value;
+                    }
+                }
+                return size == result.length ? result : Arrays.copyOf(result, size);
+            });
+        }
+
+        void mapBatch(SpscRingBuffer<Object[]> input, SpscRingBuffer<Object[]> output, StageStats stageStats, Function<Object[], Object[]> function) {
+            Object[] batch;
+            while ((batch = input.take(this::isStopped, stageStats)) != null && batch != END) {
+                Object[] result = function.apply(batch);
+                if (result.length != 0) {
+                    push(output, result, stageStats);
+                }
+            }
+            if (batch == END) {
+                push(output, END, stageStats);
+            }
+        }
+
+        void join(Thread[] threads) {
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    stopped = true;
+                    Thread.currentThread().interrupt();
+                    LOGGER.warn("Interrupted while waiting for " + thread.getName());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.globsframework.csv;
+
+import java.util.Arrays;
+
+/*
+find the record marker at the start of a line in one scan, markers may have different length (the longest wins).
+ */
+class MarkerTrie<T> {
+    private final Node<T> root = new Node<>();
+    private int maxLength;
+
+    void put(String marker, T value) {
+        if (marker.isEmpty()) {
+            throw new RuntimeException("Empty marker");
+        }
+        Node<T> node = root;
+        for (int i = 0; i < marker.length(); i++) {
+            node = node.getOrCreate(marker.charAt(i));
+        }
+        if (node.value != null) {
+            throw new RuntimeException("Duplicate marker '" + marker + "'");
+        }
+        node.value = value;
+        maxLength = Math.max(maxLength, marker.length());
+    }
+
+    T match(String line) {
+        Node<T> node = root;
+        T found = null;
+        for (int i = 0; i < line.length() && node != null; i++) {
+            node = node.get(line.charAt(i));
+            if (node != null && node.value != null) {
+                found = node.value;
+            }
+        }
+        return found;
+    }
+
+    int getMaxLength() {
+        return maxLength;
+    }
+
+    private static class Node<T> {
+        private char[] keys = new char[0];
+        private Node<T>[] children = newArray(0);
+        private T value;
+
+        Node<T> get(char c) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node<T> getOrCreate(char c) {
+            Node<T> node = get(c);
+            if (node == null) {
+                node = new Node<>();
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                keys[keys.length - 1] = c;
+                children = Arrays.copyOf(children, children.length + 1);
+                children[children.length - 1] = node;
+            }
+            return node;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newArray(int size) {
+            return new Node[size];
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.globsframework.csv;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.model.Glob;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+keep the result of the custom data access by input values, the line itself is not part of the key:
+the result must only depend on the input fields. Each data access keep at most maxSize entries,
+the least recently used are removed. On getAll, only the distinct missing inputs are given to the delegate.
+ */
+public class MemoizedDataAccessFactory implements Reformater.CustomDataAccessFactory {
+    private static final String NO_VALUE = new String("no value");
+    private final Reformater.CustomDataAccessFactory factory;
+    private final int maxSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public MemoizedDataAccessFactory(Reformater.CustomDataAccessFactory factory, int maxSize) {
+        this.factory = factory;
+        this.maxSize = maxSize;
+    }
+
+    public Reformater.CustomDataAccess create(String fieldName, GlobType lineType, String name, String params) {
+        return new MemoizedDataAccess(factory.create(fieldName, lineType, name, params));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private class MemoizedDataAccess implements Reformater.CustomDataAccess {
+        private final Reformater.CustomDataAccess dataAccess;
+        private final Map<List<String>, String> cache = new LinkedHashMap<>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<List<String>, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+
+        MemoizedDataAccess(Reformater.CustomDataAccess dataAccess) {
+            this.dataAccess = dataAccess;
+        }
+
+        public String get(String fieldName, List<String> input, Glob data) {
+            String value;
+            synchronized (cache) {
+                value = cache.get(input);
+            }
+            if (value != null) {
+                hits.incrementAndGet();
+                return value == NO_VALUE ? null : value;
+            }
+            misses.incrementAndGet();
+            value = dataAccess.get(fieldName, input, data);
+            put(input, value);
+            return value;
+        }
+
+        public List<String> getAll(String fieldName, List<List<String>> inputs, List<Glob> data) {
+            String[] result = new String[inputs.size()];
+            Map<List<String>, List<Integer>> missing = new LinkedHashMap<>();
+            List<Glob> missingData = new ArrayList<>();
+            synchronized (cache) {
+                for (int i = 0; i < inputs.size(); i++) {
+                    String value = cache.get(inputs.get(i));
+                    if (value != null) {
+                        result[i] = value == NO_VALUE ? null : value;
+                    } else {
+                        List<Integer> indexes = missing.get(inputs.get(i));
+                        if (indexes == null) {
+                            indexes = new ArrayList<>();
+                            missing.put(inputs.get(i), indexes);
+                            missingData.add(data.get(i));
+                        }
+                        indexes.add(i);
+                    }
+                }
+            }
+            hits.addAndGet(inputs.size() - missing.size());
+            misses.addAndGet(missing.size());
+            if (!missing.isEmpty()) {
+                List<String> values = dataAccess.getAll(fieldName, new ArrayList<>(missing.keySet()), missingData);
+                int i = 0;
+                for (Map.Entry<List<String>, List<Integer>> entry : missing.entrySet()) {
+                    String value = values.get(i++);
+                    put(entry.getKey(), value);
+                    for (Integer index : entry.getValue()) {
+                        result[index] = value;
+                    }
+                }
+            }
+            return Arrays.asList(result);
+        }
+
+        private void put(List<String> input, String value) {
+            List<String> key = Collections.unmodifiableList(new ArrayList<>(input));
+            synchronized (cache) {
+                cache.put(key, value == null ? NO_VALUE : value);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.globsframework.csv;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/*
+run tasks on a fixed pool and give the results to output, on the caller thread, in the order of submission.
+At most 2 * threads tasks are pending: submit wait for the oldest one beyond that.
+ */
+class OrderedExecutor<R> implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderedExecutor.class);
+    private final ExecutorService executor;
+    private final Consumer<R> output;
+    private final int maxPending;
+    private final Deque<Future<R>> pending = new ArrayDeque<>();
+
+    OrderedExecutor(String name, int threads, Consumer<R> output) {
+        this.output = output;
+        this.maxPending = threads * 2;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void submit(Callable<R> task) {
+        pending.add(executor.submit(task));
+        while (pending.size() > maxPending) {
+            emit(pending.poll());
+        }
+    }
+
+    void finish() {
+        while (!pending.isEmpty()) {
+            emit(pending.poll());
+        }
+    }
+
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void emit(Future<R> future) {
+        R result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new RuntimeException("Interrupted", e);
+        } catch (ExecutionException e) {
+            close();
+            String message = "Fail to execute task";
+            LOGGER.error(message, e.getCause());
+            throw new RuntimeException(message, e.getCause());
+        }
+        output.accept(result);
+    }
+}
@@ -0,0 +1,77 @@
+package org.globsframework.csv;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.model.Glob;
+import org.globsframework.core.model.MutableGlob;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/*
+cut the lines on root key change, build batches of complete roots on a thread pool (one State per thread)
+and emit the roots in the order of the input.
+ */
+class ParallelGroupingConsumer extends ComplexImporter.ConsumerWithCurrent {
+    static final int LINES_PER_TASK = 1024;
+    private final ComplexImporter.FieldMapper rootKey;
+    private final GlobType rootType;
+    private final Object[] currentRaw;
+    private final ThreadLocal<ComplexImporter.State> states;
+    private final OrderedExecutor<List<Glob>> executor;
+    private List<Glob> task = new ArrayList<>();
+    private MutableGlob currentKey;
+
+    ParallelGroupingConsumer(Consumer<Glob> consumer, Supplier<ComplexImporter.State> stateFactory,
+                             ComplexImporter.FieldMapper rootKey, GlobType rootType, int threads) {
+        super(consumer, null);
+        this.rootKey = rootKey;
+        this.rootType = rootType;
+        this.currentRaw = new Object[rootKey.fields.size()];
+        this.states = ThreadLocal.withInitial(stateFactory);
+        this.executor = new OrderedExecutor<>("complex-import", threads, roots -> roots.forEach(consumer));
+    }
+
+    public void accept(Glob line) {
+        if (currentKey == null || !rootKey.isSame(currentKey, currentRaw, line)) {
+            if (task.size() >= LINES_PER_TASK) {
+                submit();
+            }
+            currentKey = rootType.instantiate();
+            rootKey.copy(currentKey, currentRaw, line);
+        }
+        task.add(line);
+    }
+
+    void end() {
+        try (executor) {
+            if (!task.isEmpty()) {
+                submit();
+            }
+            executor.finish();
+        }
+    }
+
+    public void close() {
+        executor.close();
+    }
+
+    private void submit() {
+        List<Glob> lines = task;
+        task = new ArrayList<>();
+        executor.submit(() -> build(lines));
+    }
+
+    private List<Glob> build(List<Glob> lines) {
+        ComplexImporter.State state = states.get();
+        state.reset();
+        List<Glob> roots = new ArrayList<>();
+        ComplexImporter.ConsumerWithCurrent builder = new ComplexImporter.ConsumerWithCurrent(roots::add, state);
+        for (Glob line : lines) {
+            builder.accept(line);
+        }
+        builder.end();
+        return roots;
+    }
+}
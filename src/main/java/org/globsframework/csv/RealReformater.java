@@ -6,15 +6,19 @@ import org.globsframework.core.metamodel.impl.DefaultGlobTypeBuilder;
 import org.globsframework.core.model.Glob;
 import org.globsframework.core.model.MutableGlob;
 import org.globsframework.core.utils.Strings;
+import org.globsframework.csv.annotation.ExportDateFormat;
 import org.globsframework.csv.model.FieldMappingType;
 import org.globsframework.json.GSonUtils;
 
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.text.DecimalFormat;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAccessor;
 import java.util.*;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -57,26 +61,44 @@ public class RealReformater implements Reformater {
         for (Glob mapping : fieldMapping) {
             String fieldName = mapping.get(FieldMappingType.to);
             Glob from = mapping.get(FieldMappingType.from);
-            StringField str = outTypeBuilder.declareStringField(fieldName);
+            Field outField = declareOutputField(outTypeBuilder, fieldName, mapping.get(FieldMappingType.targetType));
             if (from.getType() == FieldMappingType.FromType.TYPE) {
-                onFrom(fromType, from, str);
+                onFrom(fromType, from, outField);
             } else if (from.getType() == FieldMappingType.TemplateType.TYPE) {
-                onTemplate(fromType, from, str);
+                onTemplate(fromType, from, outField);
             } else if (from.getType() == FieldMappingType.OverrideData.TYPE) {
-                onOverride(fromType, fieldName, from, str);
+                onOverride(fromType, fieldName, from, outField);
             } else if (from.getType() == FieldMappingType.MappingData.TYPE) {
-                onMapping(fromType, from, str);
+                onMapping(fromType, from, outField);
             } else if (from.getType() == FieldMappingType.JoinType.TYPE) {
-                onJoin(fromType, from, str);
+                onJoin(fromType, from, outField);
             } else if (from.getType() == FieldMappingType.SumData.TYPE) {
-                onSum(fromType, from, str);
+                onSum(fromType, from, outField);
+            } else if (from.getType() == FieldMappingType.ExpressionType.TYPE) {
+                onExpression(fromType, from, outField);
             }
         }
         resultType = outTypeBuilder.get();
     }
 
-    private void onFrom(GlobType fromType, Glob from, StringField str) {
+    private void onFrom(GlobType fromType, Glob from, Field outField) {
         final Field fromTypeField = fromType.getField(from.get(FieldMappingType.FromType.from));
+        Function<Object, Object> copy = isRawValue(from) ? typedCopy(fromTypeField, outField) : null;
+        if (copy != null) {
+            // no text involved: the value is copied (or widened) as is.
+            String defaultValue = from.get(FieldMappingType.FromType.defaultValueIfEmpty);
+            Object defaultData = Strings.isNullOrEmpty(defaultValue) ? null : TextOutput.convert(outField, defaultValue);
+            fieldMerger.add((input, to) -> {
+                Object value = input.getValue(fromTypeField);
+                if (value != null) {
+                    to.setValue(outField, copy.apply(value));
+                } else if (defaultData != null) {
+                    to.setValue(outField, defaultData);
+                }
+            });
+            return;
+        }
+        TextOutput output = TextOutput.create(outField);
         ExtractField extractField =
                 ExtractField.create(fromTypeField,
                         from.get(FieldMappingType.FromType.defaultValueIfEmpty),
@@ -86,13 +108,66 @@ public class RealReformater implements Reformater {
         fieldMerger.add((input, to) -> {
                     String res = merger.merge(input);
                     if (res != null) {
-                        to.set(str, res);
+                        output.set(to, res);
                     }
                 }
         );
     }
 
-    private void onMapping(GlobType fromType, Glob from, StringField str) {
+    private static Field declareOutputField(DefaultGlobTypeBuilder outTypeBuilder, String fieldName, String targetType) {
+        if (Strings.isNullOrEmpty(targetType)) {
+            return outTypeBuilder.declareStringField(fieldName);
+        }
+        return switch (targetType.toLowerCase()) {
+            case "string" -> outTypeBuilder.declareStringField(fieldName);
+            case "int", "integer" -> outTypeBuilder.declareIntegerField(fieldName);
+            case "long" -> outTypeBuilder.declareLongField(fieldName);
+            case "double" -> outTypeBuilder.declareDoubleField(fieldName);
+            case "boolean" -> outTypeBuilder.declareBooleanField(fieldName);
+            case "bigdecimal" -> outTypeBuilder.declareBigDecimalField(fieldName);
+            case "date" -> outTypeBuilder.declareDateField(fieldName, ExportDateFormat.TYPE.instantiate()
+                    .set(ExportDateFormat.FORMAT, "yyyy-MM-dd"));
+            case "datetime" -> outTypeBuilder.declareDateTimeField(fieldName, ExportDateFormat.TYPE.instantiate()
+                    .set(ExportDateFormat.FORMAT, "yyyy-MM-dd HH:mm:ss"));
+            default -> throw new RuntimeException("Unknown target type " + targetType + " for " + fieldName);
+        };
+    }
+
+    // the value of the field is used without going to text (no formater)
+    private static boolean isRawValue(Glob extract) {
+        return extract.getOrEmpty(FieldMappingType.FromType.formater).length == 0 &&
+               Strings.isNullOrEmpty(extract.get(FieldMappingType.FromType.toStringFormater));
+    }
+
+    // null if the value must go through text
+    private static Function<Object, Object> typedCopy(Field fromField, Field outField) {
+        if (outField instanceof StringField) {
+            return null;
+        }
+        if (fromField.getDataType() == outField.getDataType()) {
+            return Function.identity();
+        }
+        boolean integral = fromField instanceof IntegerField || fromField instanceof LongField;
+        if (outField instanceof LongField && fromField instanceof IntegerField) {
+            return value -> ((Integer) value).longValue();
+        }
+        if (outField instanceof DoubleField && integral) {
+            return value -> ((Number) value).doubleValue();
+        }
+        if (outField instanceof BigDecimalField && integral) {
+            return value -> BigDecimal.valueOf(((Number) value).longValue());
+        }
+        if (outField instanceof BigDecimalField && fromField instanceof DoubleField) {
+            return value -> BigDecimal.valueOf((Double) value);
+        }
+        if (outField instanceof DateField && fromField instanceof DateTimeField) {
+            return value -> ((ZonedDateTime) value).toLocalDate();
+        }
+        return null;
+    }
+
+    private void onMapping(GlobType fromType, Glob from, Field outField) {
+        TextOutput output = TextOutput.create(outField);
         final Glob f = from.get(FieldMappingType.MappingData.from);
         final Field field = fromType.getField(f.get(FieldMappingType.FromType.from));
         ExtractField extractField =
@@ -101,13 +176,18 @@ public class RealReformater implements Reformater {
                         f.get(FieldMappingType.FromType.toStringFormater),
                         buildFormater(f.getOrEmpty(FieldMappingType.FromType.formater)));
         final Glob[] data = from.getOrEmpty(FieldMappingType.MappingData.mapping);
-        Map<String, String> keyToValues = Arrays.stream(data).collect(Collectors.toMap(FieldMappingType.KeyValue.key, FieldMappingType.KeyValue.value));
+        Map<String, String> inlineValues = Arrays.stream(data).collect(Collectors.toMap(FieldMappingType.KeyValue.key, FieldMappingType.KeyValue.value));
+        CompactMappingTable external = getExternalMapping(from);
+        Function<String, String> keyToValues = external == null ? inlineValues::get : key -> {
+            String value = inlineValues.get(key);
+            return value != null ? value : external.get(key);
+        };
         if (from.isTrue(FieldMappingType.MappingData.copyValueIfNoMapping)) {
             fieldMerger.add((input, to) -> {
                 final String tr = extractField.tr(input);
                 if (tr != null) {
-                    final String newValue = keyToValues.get(tr);
-                    to.set(str, newValue != null ? newValue : tr);
+                    final String newValue = keyToValues.apply(tr);
+                    output.set(to, newValue != null ? newValue : tr);
                 }
             });
         } else {
@@ -115,18 +195,33 @@ public class RealReformater implements Reformater {
             fieldMerger.add((input, to) -> {
                 final String tr = extractField.tr(input);
                 if (tr != null) {
-                    final String newValue = keyToValues.get(tr);
+                    final String newValue = keyToValues.apply(tr);
                     if (newValue != null) {
-                        to.set(str, newValue);
+                        output.set(to, newValue);
                     } else if (Strings.isNotEmpty(def)) {
-                        to.set(str, def);
+                        output.set(to, def);
                     }
                 }
             });
         }
     }
 
-    private void onOverride(GlobType fromType, String fieldName, Glob from, StringField str) {
+    private static CompactMappingTable getExternalMapping(Glob mappingData) {
+        String compactFile = mappingData.get(FieldMappingType.MappingData.externalCompactFile);
+        if (Strings.isNotEmpty(compactFile)) {
+            return CompactMappingTable.loadCompact(Path.of(compactFile));
+        }
+        String file = mappingData.get(FieldMappingType.MappingData.externalFile);
+        if (Strings.isNotEmpty(file)) {
+            String separator = mappingData.get(FieldMappingType.MappingData.externalSeparator, ",");
+            return CompactMappingTable.loadCsv(Path.of(file), separator.charAt(0),
+                    mappingData.isTrue(FieldMappingType.MappingData.externalWithHeader));
+        }
+        return null;
+    }
+
+    private void onOverride(GlobType fromType, String fieldName, Glob from, Field outField) {
+        TextOutput output = TextOutput.create(outField);
         List<ExtractField> extractFields = new ArrayList<>();
         for (Glob f : from.getOrEmpty(FieldMappingType.OverrideData.inputField)) {
             extractFields.add(
@@ -141,24 +236,44 @@ public class RealReformater implements Reformater {
         CustomDataAccess dataAccess = this.dataAccessFactory.create(fieldName, fromType,
                 from.get(FieldMappingType.OverrideData.name),
                 from.get(FieldMappingType.OverrideData.additionalParams));
-        fieldMerger.add((input, to) -> {
-            List<String> data = new ArrayList<>(extractFields.size());
-            for (ExtractField extractField : extractFields) {
-                data.add(extractField.tr(input));
+        fieldMerger.add(new Mapper() {
+            public void apply(Glob input, MutableGlob to) {
+                String res = dataAccess.get(fieldName, extract(input), input);
+                if (res != null) {
+                    output.set(to, res);
+                }
+            }
+
+            public void applyAll(List<Glob> inputs, List<MutableGlob> to) {
+                List<List<String>> data = new ArrayList<>(inputs.size());
+                for (Glob input : inputs) {
+                    data.add(extract(input));
+                }
+                List<String> res = dataAccess.getAll(fieldName, data, inputs);
+                for (int i = 0; i < inputs.size(); i++) {
+                    if (res.get(i) != null) {
+                        output.set(to.get(i), res.get(i));
+                    }
+                }
             }
-            String res = dataAccess.get(fieldName, data, input);
-            if (res != null) {
-                to.set(str, res);
+
+            private List<String> extract(Glob input) {
+                String[] data = new String[extractFields.size()];
+                for (int i = 0; i < data.length; i++) {
+                    data[i] = extractFields.get(i).tr(input);
+                }
+                return Arrays.asList(data);
             }
         });
     }
 
-    private void onTemplate(GlobType fromType, Glob from, StringField str) {
+    private void onTemplate(GlobType fromType, Glob from, Field outField) {
+        TextOutput output = TextOutput.create(outField);
         Merger merger = getMerger(fromType, from);
         fieldMerger.add((input, to) -> {
                     String res = merger.merge(input);
                     if (res != null) {
-                        to.set(str, res);
+                        output.set(to, res);
                     }
                 }
         );
@@ -184,28 +299,47 @@ public class RealReformater implements Reformater {
         return merger;
     }
 
-    private void onSum(GlobType fromType, Glob from, StringField str) {
-        List<ExtractField> extractFields = new ArrayList<>();
+    private void onSum(GlobType fromType, Glob from, Field outField) {
+        List<Function<Glob, Object>> values = new ArrayList<>();
         for (Glob f : from.getOrEmpty(FieldMappingType.SumData.from)) {
-            extractFields.add(
-                    ExtractField.create(
-                            fromType.getField(f.get(FieldMappingType.FromType.from)),
-                            f.get(FieldMappingType.FromType.defaultValueIfEmpty),
-                            f.get(FieldMappingType.FromType.toStringFormater),
-                            buildFormater(f.getOrEmpty(FieldMappingType.FromType.formater)))
-            );
+            Field field = fromType.getField(f.get(FieldMappingType.FromType.from));
+            String defaultValue = f.get(FieldMappingType.FromType.defaultValueIfEmpty);
+            if (isRawValue(f) && (field instanceof IntegerField || field instanceof LongField ||
+                                  field instanceof DoubleField || field instanceof BigDecimalField)) {
+                values.add(input -> {
+                    Object value = input.getValue(field);
+                    return value != null ? value : defaultValue;
+                });
+            } else {
+                ExtractField extractField = ExtractField.create(field, defaultValue,
+                        f.get(FieldMappingType.FromType.toStringFormater),
+                        buildFormater(f.getOrEmpty(FieldMappingType.FromType.formater)));
+                values.add(extractField::tr);
+            }
         }
-        Merger merger = new SumDataOp(fromType, extractFields);
+        SumDataOp sum = new SumDataOp(values, outField);
+        fieldMerger.add((input, to) -> to.setValue(outField, sum.sum(input)));
+    }
+
+    private void onExpression(GlobType fromType, Glob from, Field outField) {
+        Expression expression = Expression.parse(from.get(FieldMappingType.ExpressionType.expression), fromType, externalVariables);
+        TextOutput output = TextOutput.create(outField);
         fieldMerger.add((input, to) -> {
-                    String res = merger.merge(input);
-                    if (res != null) {
-                        to.set(str, res);
-                    }
+            Object value = expression.evaluate(input);
+            if (value instanceof String str) {
+                output.set(to, str);
+            } else if (value != null) {
+                try {
+                    to.setValue(outField, Expression.toFieldValue(value, outField));
+                } catch (RuntimeException e) {
+                    throw new RuntimeException("Fail to set " + outField.getName() + " with " + expression + " : " + e.getMessage(), e);
                 }
-        );
+            }
+        });
     }
 
-    private void onJoin(GlobType fromType, Glob from, StringField str) {
+    private void onJoin(GlobType fromType, Glob from, Field outField) {
+        TextOutput output = TextOutput.create(outField);
         final Glob[] on = from.getOrEmpty(FieldMappingType.JoinType.from);
         final ExtractField[] extractFields = Arrays.stream(on).map(f ->
                         ExtractField.create(fromType.getField(f.get(FieldMappingType.FromType.from)),
@@ -247,7 +381,7 @@ public class RealReformater implements Reformater {
                 data.append(last);
             }
             if (!data.isEmpty()) {
-                to.set(str, data.toString());
+                output.set(to, data.toString());
             }
         });
     }
@@ -266,6 +400,30 @@ public class RealReformater implements Reformater {
         return mutableGlob;
     }
 
+    @Override
+    public Glob transformInto(Glob from, MutableGlob to) {
+        for (Field field : resultType.getFields()) {
+            to.unset(field);
+        }
+        for (Mapper mapper : fieldMerger) {
+            mapper.apply(from, to);
+        }
+        return to;
+    }
+
+    // mappers are applied one after the other on the whole batch (a mapper only write its own field).
+    @Override
+    public List<Glob> transformAll(List<Glob> from) {
+        List<MutableGlob> result = new ArrayList<>(from.size());
+        for (int i = 0; i < from.size(); i++) {
+            result.add(resultType.instantiate());
+        }
+        for (Mapper mapper : fieldMerger) {
+            mapper.applyAll(from, result);
+        }
+        return new ArrayList<>(result);
+    }
+
     Formatter buildFormater(Glob[] formats) {
         if (formats.length == 0) {
             return new NoFormatter();
@@ -291,6 +449,12 @@ public class RealReformater implements Reformater {
 
     interface Mapper {
         void apply(Glob from, MutableGlob to);
+
+        default void applyAll(List<Glob> from, List<MutableGlob> to) {
+            for (int i = 0; i < from.size(); i++) {
+                apply(from.get(i), to.get(i));
+            }
+        }
     }
 
     interface Merger {
@@ -453,7 +617,7 @@ public class RealReformater implements Reformater {
             if (fromField instanceof DoubleField) {
                 AnyFormater<Object> decimalFormat;
                 if (Strings.isNotEmpty(typeFormatter)) {
-                    decimalFormat = new DecimalFormat(typeFormatter)::format;
+                    decimalFormat = decimalFormat(typeFormatter);
                 } else {
                     decimalFormat = value -> Double.toString((Double) value);
                 }
@@ -462,7 +626,7 @@ public class RealReformater implements Reformater {
             if (fromField instanceof LongField) {
                 AnyFormater<Object> decimalFormat;
                 if (Strings.isNotEmpty(typeFormatter)) {
-                    decimalFormat = new DecimalFormat(typeFormatter)::format;
+                    decimalFormat = decimalFormat(typeFormatter);
                 } else {
                     decimalFormat = value -> Long.toString((Long) value);
                 }
@@ -471,7 +635,7 @@ public class RealReformater implements Reformater {
             if (fromField instanceof IntegerField) {
                 AnyFormater<Object> decimalFormat;
                 if (Strings.isNotEmpty(typeFormatter)) {
-                    decimalFormat = new DecimalFormat(typeFormatter)::format;
+                    decimalFormat = decimalFormat(typeFormatter);
                 } else {
                     decimalFormat = value -> Integer.toString((Integer) value);
                 }
@@ -507,6 +671,12 @@ public class RealReformater implements Reformater {
             };
         }
 
+        // DecimalFormat is not thread safe, a reformater may be shared (see ReformaterCache)
+        static AnyFormater<Object> decimalFormat(String pattern) {
+            DecimalFormat decimalFormat = new DecimalFormat(pattern);
+            ThreadLocal<DecimalFormat> formats = ThreadLocal.withInitial(() -> (DecimalFormat) decimalFormat.clone());
+            return value -> formats.get().format(value);
+        }
 
         class DecimalExtractField implements ExtractField {
             private final DoubleField fromField;
@@ -658,22 +828,103 @@ public class RealReformater implements Reformater {
         }
     }
 
-    private class SumDataOp implements Merger {
-        private final List<ExtractField> extractFields;
+    /*
+    values are Number read from the fields or String to parse; the sum is done in the type of the output field
+    (in double for a String output).
+     */
+    static class SumDataOp {
+        private final List<Function<Glob, Object>> values;
+        private final Field outField;
+
+        SumDataOp(List<Function<Glob, Object>> values, Field outField) {
+            this.values = values;
+            this.outField = outField;
+            if (!(outField instanceof StringField || outField instanceof DoubleField || outField instanceof IntegerField ||
+                  outField instanceof LongField || outField instanceof BigDecimalField)) {
+                throw new RuntimeException("Sum not possible in " + outField.getDataType() + " for " + outField.getName());
+            }
+        }
+
+        Object sum(Glob from) {
+            if (outField instanceof IntegerField || outField instanceof LongField) {
+                long total = 0;
+                for (Function<Glob, Object> value : values) {
+                    Object v = value.apply(from);
+                    if (v instanceof Integer || v instanceof Long) {
+                        total += ((Number) v).longValue();
+                    } else if (isSet(v)) {
+                        total += toBigDecimal(v).longValueExact();
+                    }
+                }
+                return outField instanceof IntegerField ? (Object) Math.toIntExact(total) : (Object) total;
+            }
+            if (outField instanceof BigDecimalField) {
+                BigDecimal total = BigDecimal.ZERO;
+                for (Function<Glob, Object> value : values) {
+                    Object v = value.apply(from);
+                    if (isSet(v)) {
+                        total = total.add(toBigDecimal(v));
+                    }
+                }
+                return total;
+            }
+            double total = 0;
+            for (Function<Glob, Object> value : values) {
+                Object v = value.apply(from);
+                if (v instanceof Number number) {
+                    total += number.doubleValue();
+                } else if (isSet(v)) {
+                    total += Double.parseDouble((String) v);
+                }
+            }
+            return outField instanceof DoubleField ? (Object) total : Double.toString(total);
+        }
 
-        public SumDataOp(GlobType fromType, List<ExtractField> extractFields) {
-            this.extractFields = extractFields;
+        private static boolean isSet(Object value) {
+            return value instanceof Number || (value instanceof String str && Strings.isNotEmpty(str));
         }
 
-        public String merge(Glob from) {
-            double total = 0;
-            for (ExtractField s : extractFields) {
-                String tr = s.tr(from);
-                if (Strings.isNotEmpty(tr)) {
-                    total += Double.parseDouble(tr);
+        private static BigDecimal toBigDecimal(Object value) {
+            if (value instanceof BigDecimal bigDecimal) {
+                return bigDecimal;
+            }
+            if (value instanceof Integer || value instanceof Long) {
+                return BigDecimal.valueOf(((Number) value).longValue());
+            }
+            if (value instanceof Double d) {
+                return BigDecimal.valueOf(d);
+            }
+            return new BigDecimal(((String) value).trim());
+        }
+    }
+
+    // set a text result in the output field, converted when the output is not a String.
+    interface TextOutput {
+        void set(MutableGlob to, String value);
+
+        static TextOutput create(Field outField) {
+            if (outField instanceof StringField stringField) {
+                return (to, value) -> to.set(stringField, value);
+            }
+            ComplexImporter.ConvertFromStr convert = ComplexImporter.convert(outField, true, false);
+            return (to, value) -> {
+                Object data = convert(outField, convert, value);
+                if (data != null) {
+                    to.setValue(outField, data);
                 }
+            };
+        }
+
+        static Object convert(Field outField, String value) {
+            return convert(outField, ComplexImporter.convert(outField, true, false), value);
+        }
+
+        private static Object convert(Field outField, ComplexImporter.ConvertFromStr convert, String value) {
+            try {
+                return convert.convert(value);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Can not convert '" + value + "' to " + outField.getDataType() + " for " + outField.getName(), e);
             }
-            return Double.toString(total);
         }
     }
 }
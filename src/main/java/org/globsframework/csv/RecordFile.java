@@ -0,0 +1,350 @@
+package org.globsframework.csv;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.model.Glob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+/*
+random access on the records of a file: read record N, a range of records or a sample without reading the whole file.
+Created by ImportFile.openFixSize (the position of a record is computed from the record length) or
+ImportFile.openIndexed (the position of one record every recordsPerEntry is kept in a sidecar index file).
+Not thread safe.
+ */
+public abstract class RecordFile implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordFile.class);
+    protected final FileChannel channel;
+    protected final GlobType type;
+    protected final ImportFile.ImportReader importReader;
+    protected final Charset charset;
+
+    RecordFile(FileChannel channel, GlobType type, ImportFile.ImportReader importReader, Charset charset) {
+        this.channel = channel;
+        this.type = type;
+        this.importReader = importReader;
+        this.charset = charset;
+    }
+
+    public GlobType getType() {
+        return type;
+    }
+
+    public abstract long size();
+
+    public Glob get(long index) {
+        Glob[] found = new Glob[1];
+        read(index, 1, glob -> found[0] = glob);
+        return found[0];
+    }
+
+    // read count records from the record at index from (less if the end of the file is reached).
+    public void read(long from, long count, Consumer<Glob> consumer) {
+        if (from < 0 || from >= size()) {
+            throw new RuntimeException("Record " + from + " out of range (" + size() + " records)");
+        }
+        try {
+            readRecords(from, Math.min(count, size() - from), consumer);
+        } catch (IOException e) {
+            String message = "Fail to read records from " + from;
+            LOGGER.error(message, e);
+            throw new RuntimeException(message, e);
+        }
+    }
+
+    // count distinct records taken at random, given in the order of the file.
+    public void sample(int count, Random random, Consumer<Glob> consumer) {
+        long size = size();
+        TreeSet<Long> indexes = new TreeSet<>();
+        // Floyd's algorithm: count distinct values without a full shuffle
+        for (long i = size - Math.min(count, size); i < size; i++) {
+            long index = (long) (random.nextDouble() * (i + 1));
+            if (!indexes.add(index)) {
+                indexes.add(i);
+            }
+        }
+        for (Long index : indexes) {
+            consumer.accept(get(index));
+        }
+    }
+
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Fail to close file", e);
+        }
+    }
+
+    abstract void readRecords(long from, long count, Consumer<Glob> consumer) throws IOException;
+
+    static class FixSize extends RecordFile {
+        private static final int RECORDS_PER_READ = 1024;
+        private final ImportFile.FixSizeElement[] elements;
+        private final int recordSize;
+        private final int recordLength;
+        private final long size;
+
+        FixSize(FileChannel channel, GlobType type, ImportFile.ImportReader importReader, Charset charset,
+                ImportFile.FixSizeElement[] elements, int recordSize) throws IOException {
+            super(channel, type, importReader, charset);
+            this.elements = elements;
+            this.recordSize = recordSize;
+            this.recordLength = recordSize + lineSeparatorLength(channel, recordSize);
+            long fileSize = channel.size();
+            this.size = fileSize / recordLength + (fileSize % recordLength >= recordSize ? 1 : 0);
+        }
+
+        public long size() {
+            return size;
+        }
+
+        void readRecords(long from, long count, Consumer<Glob> consumer) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, RECORDS_PER_READ) * recordLength);
+            long index = from;
+            long end = from + count;
+            while (index < end) {
+                int records = (int) Math.min(end - index, RECORDS_PER_READ);
+                buffer.clear();
+                buffer.limit((int) Math.min((long) records * recordLength, channel.size() - index * recordLength));
+                long position = index * recordLength;
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        break;
+                    }
+                    position += read;
+                }
+                byte[] bytes = buffer.array();
+                for (int i = 0; i < records; i++) {
+                    String line = new String(bytes, i * recordLength, recordSize, charset);
+                    consumer.accept(importReader.read(new ImportFile.SplittedCsvLine(elements, line)));
+                }
+                index += records;
+            }
+        }
+
+        // 0 if records are not separated by a new line, 1 for \n, 2 for \r\n
+        private static int lineSeparatorLength(FileChannel channel, int recordSize) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(2);
+            channel.read(buffer, recordSize);
+            if (buffer.position() > 0 && buffer.get(0) == '\n') {
+                return 1;
+            }
+            if (buffer.position() > 1 && buffer.get(0) == '\r' && buffer.get(1) == '\n') {
+                return 2;
+            }
+            return 0;
+        }
+    }
+
+    static class Indexed extends RecordFile {
+        private static final int VERSION = 2;
+        private final CSVFormat format;
+        private final OffsetIndex index;
+
+        Indexed(FileChannel channel, GlobType type, ImportFile.ImportReader importReader, Charset charset,
+                CSVFormat format, OffsetIndex index) {
+            super(channel, type, importReader, charset);
+            this.format = format;
+            this.index = index;
+        }
+
+        public long size() {
+            return index.count;
+        }
+
+        void readRecords(long from, long count, Consumer<Glob> consumer) throws IOException {
+            int entry = (int) (from / index.recordsPerEntry);
+            long toSkip = from - (long) entry * index.recordsPerEntry;
+            channel.position(index.offsets[entry]);
+            Reader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), charset));
+            CSVParser parser = format.parse(reader);
+            Iterator<CSVRecord> iterator = parser.iterator();
+            for (long i = 0; i < toSkip && iterator.hasNext(); ) {
+                if (!isEmpty(iterator.next())) {
+                    i++;
+                }
+            }
+            for (long i = 0; i < count && iterator.hasNext(); ) {
+                CSVRecord record = iterator.next();
+                if (isEmpty(record)) {
+                    continue;
+                }
+                i++;
+                consumer.accept(importReader.read(new ImportFile.CsvLine() {
+                    public Date getAsDate(int index) {
+                        return null;
+                    }
+
+                    public String getAt(int index) {
+                        return record.get(index);
+                    }
+
+                    public int size() {
+                        return record.size();
+                    }
+
+                    public String toString() {
+                        return record.toString();
+                    }
+                }));
+            }
+        }
+
+        // as the streaming import, a line where all the cells are empty is not a record
+        private static boolean isEmpty(CSVRecord record) {
+            for (String value : record) {
+                if (value != null && !value.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        static Path indexPath(Path path) {
+            return path.resolveSibling(path.getFileName() + ".idx");
+        }
+
+        // reuse the sidecar index if it was built for the current content of the file, else scan the file and save it.
+        static OffsetIndex loadOrBuild(Path path, char separator, Character quoteChar, boolean skipHeader, int recordsPerEntry) throws IOException {
+            Path indexPath = indexPath(path);
+            long fileSize = Files.size(path);
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            if (Files.exists(indexPath)) {
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+                    if (input.readInt() == VERSION && input.readLong() == fileSize && input.readLong() == lastModified
+                        && input.readInt() == recordsPerEntry) {
+                        long count = input.readLong();
+                        long[] offsets = new long[input.readInt()];
+                        for (int i = 0; i < offsets.length; i++) {
+                            offsets[i] = input.readLong();
+                        }
+                        return new OffsetIndex(recordsPerEntry, count, offsets);
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Fail to read index " + indexPath + ", rebuild it", e);
+                }
+                LOGGER.info("Outdated index " + indexPath);
+            }
+            OffsetIndex index;
+            try (InputStream input = new BufferedInputStream(Files.newInputStream(path))) {
+                index = OffsetIndex.scan(input, separator, quoteChar, skipHeader, recordsPerEntry);
+            }
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath)))) {
+                output.writeInt(VERSION);
+                output.writeLong(fileSize);
+                output.writeLong(lastModified);
+                output.writeInt(recordsPerEntry);
+                output.writeLong(index.count);
+                output.writeInt(index.offsets.length);
+                for (long offset : index.offsets) {
+                    output.writeLong(offset);
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Fail to save index " + indexPath, e);
+            }
+            return index;
+        }
+    }
+
+    // byte offset of the records recordsPerEntry * i
+    static class OffsetIndex {
+        final int recordsPerEntry;
+        final long count;
+        final long[] offsets;
+
+        OffsetIndex(int recordsPerEntry, long count, long[] offsets) {
+            this.recordsPerEntry = recordsPerEntry;
+            this.count = count;
+            this.offsets = offsets;
+        }
+
+        /*
+        find the start of the records on the bytes: quote, escape and new line are ascii, so they can not be
+        part of a multi byte char (utf-8 or single byte charsets). Empty lines are skipped as the csv parser does,
+        and lines where all the cells are empty (as ;;) are not counted as the streaming import ignore them.
+         */
+        static OffsetIndex scan(InputStream input, char separator, Character quoteChar, boolean skipHeader, int recordsPerEntry) throws IOException {
+            int quote = quoteChar == null ? -1 : quoteChar;
+            long[] offsets = new long[16];
+            int entryCount = 0;
+            long count = 0;
+            long position = skipBom(input);
+            long recordStart = position;
+            boolean headerToSkip = skipHeader;
+            boolean inQuote = false;
+            boolean escape = false;
+            boolean empty = true;
+            boolean hasValue = false;
+            int b;
+            while (true) {
+                b = input.read();
+                if (b != -1) {
+                    position++;
+                    if (escape) {
+                        escape = false;
+                        hasValue = true;
+                        continue;
+                    }
+                    if (b == '\\') {
+                        escape = true;
+                        empty = false;
+                        continue;
+                    }
+                    if (b == quote) {
+                        inQuote = !inQuote;
+                        empty = false;
+                        continue;
+                    }
+                    if (b != '\n' || inQuote) {
+                        empty &= b == '\r';
+                        hasValue |= b != '\r' && (b != separator || inQuote);
+                        continue;
+                    }
+                }
+                if (!empty) {
+                    if (headerToSkip) {
+                        headerToSkip = false;
+                    } else if (hasValue) {
+                        if (count % recordsPerEntry == 0) {
+                            if (entryCount == offsets.length) {
+                                offsets = Arrays.copyOf(offsets, entryCount * 2);
+                            }
+                            offsets[entryCount++] = recordStart;
+                        }
+                        count++;
+                    }
+                }
+                if (b == -1) {
+                    break;
+                }
+                recordStart = position;
+                empty = true;
+                hasValue = false;
+            }
+            return new OffsetIndex(recordsPerEntry, count, Arrays.copyOf(offsets, entryCount));
+        }
+
+        private static int skipBom(InputStream input) throws IOException {
+            input.mark(3);
+            if (input.read() == 0xEF && input.read() == 0xBB && input.read() == 0xBF) {
+                return 3;
+            }
+            input.reset();
+            return 0;
+        }
+    }
+}
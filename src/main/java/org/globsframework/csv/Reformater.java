@@ -2,7 +2,9 @@ package org.globsframework.csv;
 
 import org.globsframework.core.metamodel.GlobType;
 import org.globsframework.core.model.Glob;
+import org.globsframework.core.model.MutableGlob;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public interface Reformater {
@@ -17,9 +19,31 @@ public interface Reformater {
 
     interface CustomDataAccess {
         String get(String fieldName, List<String> input, Glob data);
+
+        // called by transformAll with the inputs of each line of the batch, to allow a single lookup.
+        default List<String> getAll(String fieldName, List<List<String>> inputs, List<Glob> data) {
+            List<String> result = new ArrayList<>(inputs.size());
+            for (int i = 0; i < inputs.size(); i++) {
+                result.add(get(fieldName, inputs.get(i), data.get(i)));
+            }
+            return result;
+        }
     }
 
     GlobType getResultType();
 
     Glob transform(Glob from);
+
+    // the result may be written in to, after a reset of its fields (see ImportFile.withReusedGlobs).
+    default Glob transformInto(Glob from, MutableGlob to) {
+        return transform(from);
+    }
+
+    default List<Glob> transformAll(List<Glob> from) {
+        List<Glob> result = new ArrayList<>(from.size());
+        for (Glob glob : from) {
+            result.add(transform(glob));
+        }
+        return result;
+    }
 }
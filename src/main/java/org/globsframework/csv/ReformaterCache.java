@@ -0,0 +1,126 @@
+package org.globsframework.csv;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.model.Glob;
+import org.globsframework.json.GSonUtils;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+reformaters built for a source type (by identity) and a transformer config (by content), to be shared by the
+imports of many files (see ImportFile.withReformaterCache). External variables and the custom data access factory
+are part of the key by identity; as the reformater is shared across threads, they must be thread safe.
+At most maxSize reformaters are kept, the least recently used are removed.
+ */
+public class ReformaterCache {
+    private final int maxSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Map<Key, Reformater> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        protected boolean removeEldestEntry(Map.Entry<Key, Reformater> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    public ReformaterCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Reformater get(GlobType fromType, List<Glob> transformer, boolean addFromType,
+                          Map<String, Reformater.DataAccess> externalVariables,
+                          Reformater.CustomDataAccessFactory dataAccessFactory) {
+        Key key = new Key(fromType, encode(transformer), addFromType,
+                externalVariables == null ? Map.of() : Map.copyOf(externalVariables), dataAccessFactory);
+        Reformater reformater;
+        synchronized (cache) {
+            reformater = cache.get(key);
+        }
+        if (reformater != null) {
+            hits.incrementAndGet();
+            return reformater;
+        }
+        misses.incrementAndGet();
+        // built outside the lock: two threads may build the same one, the first registered is kept.
+        reformater = new RealReformater(fromType, transformer, addFromType, externalVariables, dataAccessFactory);
+        synchronized (cache) {
+            Reformater previous = cache.putIfAbsent(key, reformater);
+            return previous != null ? previous : reformater;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static String encode(List<Glob> transformer) {
+        StringBuilder builder = new StringBuilder();
+        for (Glob glob : transformer) {
+            builder.append(GSonUtils.encode(glob, true)).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static class Key {
+        private final GlobType fromType;
+        private final String config;
+        private final boolean addFromType;
+        private final Map<String, Reformater.DataAccess> externalVariables;
+        private final Reformater.CustomDataAccessFactory dataAccessFactory;
+        private final int hash;
+
+        Key(GlobType fromType, String config, boolean addFromType, Map<String, Reformater.DataAccess> externalVariables,
+            Reformater.CustomDataAccessFactory dataAccessFactory) {
+            this.fromType = fromType;
+            this.config = config;
+            this.addFromType = addFromType;
+            this.externalVariables = externalVariables;
+            this.dataAccessFactory = dataAccessFactory;
+            this.hash = Objects.hash(System.identityHashCode(fromType), config, addFromType, externalVariables.keySet(),
+                    System.identityHashCode(dataAccessFactory));
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return fromType == key.fromType && addFromType == key.addFromType && dataAccessFactory == key.dataAccessFactory &&
+                   hash == key.hash && config.equals(key.config) && sameVariables(key.externalVariables);
+        }
+
+        private boolean sameVariables(Map<String, Reformater.DataAccess> other) {
+            if (!externalVariables.keySet().equals(other.keySet())) {
+                return false;
+            }
+            for (Map.Entry<String, Reformater.DataAccess> entry : externalVariables.entrySet()) {
+                if (entry.getValue() != other.get(entry.getKey())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
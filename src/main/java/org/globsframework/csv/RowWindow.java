@@ -0,0 +1,127 @@
+package org.globsframework.csv;
+
+import org.globsframework.core.model.Glob;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/*
+skip, limit and sample of the globs produced by an importer.
+When the limit is reached, StopReading is thrown to stop the read of the document; it is caught by the importer
+which release the document. The sample is a reservoir on the read globs, given in the order of the file at the end.
+ */
+class RowWindow {
+    static final RowWindow ALL = new RowWindow(0, -1, 0, null);
+    private final long skip;
+    private final long limit;
+    private final int sampleSize;
+    private final Random random;
+
+    private RowWindow(long skip, long limit, int sampleSize, Random random) {
+        this.skip = skip;
+        this.limit = limit;
+        this.sampleSize = sampleSize;
+        this.random = random;
+    }
+
+    RowWindow withSkip(long skip) {
+        return new RowWindow(skip, limit, sampleSize, random);
+    }
+
+    RowWindow withLimit(long limit) {
+        return new RowWindow(skip, limit, sampleSize, random);
+    }
+
+    RowWindow withSample(int sampleSize, Random random) {
+        return new RowWindow(skip, limit, sampleSize, random);
+    }
+
+    boolean isAll() {
+        return skip == 0 && limit < 0 && sampleSize == 0;
+    }
+
+    boolean isSampled() {
+        return sampleSize > 0;
+    }
+
+    long getSkip() {
+        return skip;
+    }
+
+    Cursor open(Consumer<Glob> consumer, long alreadySkipped) {
+        return new Cursor(consumer, skip - alreadySkipped);
+    }
+
+    static class StopReading extends RuntimeException {
+        StopReading() {
+            super("Stop reading", null, false, false);
+        }
+    }
+
+    class Cursor implements Consumer<Glob> {
+        private final Consumer<Glob> consumer;
+        private final Glob[] reservoir;
+        private final long[] positions;
+        private long toSkip;
+        private long count;
+        private boolean done;
+
+        Cursor(Consumer<Glob> consumer, long toSkip) {
+            this.consumer = consumer;
+            this.toSkip = toSkip;
+            this.reservoir = sampleSize > 0 ? new Glob[sampleSize] : null;
+            this.positions = sampleSize > 0 ? new long[sampleSize] : null;
+        }
+
+        public void accept(Glob glob) {
+            if (done) {
+                return;
+            }
+            if (toSkip > 0) {
+                toSkip--;
+                return;
+            }
+            if (limit >= 0 && count >= limit) {
+                stop();
+            }
+            if (reservoir == null) {
+                consumer.accept(glob);
+            } else if (count < sampleSize) {
+                reservoir[(int) count] = glob;
+                positions[(int) count] = count;
+            } else {
+                long index = (long) (random.nextDouble() * (count + 1));
+                if (index < sampleSize) {
+                    reservoir[(int) index] = glob;
+                    positions[(int) index] = count;
+                }
+            }
+            count++;
+            if (limit >= 0 && count >= limit) {
+                stop();
+            }
+        }
+
+        private void stop() {
+            done = true;
+            throw new StopReading();
+        }
+
+        void end() {
+            done = true;
+            if (reservoir != null) {
+                int size = (int) Math.min(count, sampleSize);
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, Comparator.comparingLong(i -> positions[i]));
+                for (Integer i : order) {
+                    consumer.accept(reservoir[i]);
+                }
+            }
+        }
+    }
+}
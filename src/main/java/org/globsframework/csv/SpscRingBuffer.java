@@ -0,0 +1,100 @@
+package org.globsframework.csv;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/*
+bounded queue between one producer thread and one consumer thread: the producer only write tail,
+the consumer only write head (ordered writes, no lock nor CAS).
+ */
+class SpscRingBuffer<T> {
+    private final Object[] buffer;
+    private final int mask;
+    private final ImportPipeline.WaitStrategy waitStrategy;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    // producer side copy of head, consumer side copy of tail: avoid reading the other side on each call
+    private long cachedHead;
+    private long cachedTail;
+
+    SpscRingBuffer(int capacity, ImportPipeline.WaitStrategy waitStrategy) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.buffer = new Object[size];
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    boolean offer(T item) {
+        long t = tail.get();
+        if (t - cachedHead == buffer.length) {
+            cachedHead = head.get();
+            if (t - cachedHead == buffer.length) {
+                return false;
+            }
+        }
+        buffer[(int) t & mask] = item;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long h = head.get();
+        if (h == cachedTail) {
+            cachedTail = tail.get();
+            if (h == cachedTail) {
+                return null;
+            }
+        }
+        int index = (int) h & mask;
+        T item = (T) buffer[index];
+        buffer[index] = null;
+        head.lazySet(h + 1);
+        return item;
+    }
+
+    // false if cancelled while the buffer is full
+    boolean put(T item, BooleanSupplier cancelled, ImportPipeline.StageStats stats) {
+        if (offer(item)) {
+            return true;
+        }
+        long start = System.nanoTime();
+        int idle = 0;
+        try {
+            while (!offer(item)) {
+                if (cancelled.getAsBoolean()) {
+                    return false;
+                }
+                waitStrategy.idle(idle++);
+            }
+            return true;
+        } finally {
+            stats.addWait(System.nanoTime() - start);
+        }
+    }
+
+    // null if cancelled while the buffer is empty
+    T take(BooleanSupplier cancelled, ImportPipeline.StageStats stats) {
+        T item = poll();
+        if (item != null) {
+            return item;
+        }
+        long start = System.nanoTime();
+        int idle = 0;
+        try {
+            while ((item = poll()) == null) {
+                if (cancelled.getAsBoolean()) {
+                    return null;
+                }
+                waitStrategy.idle(idle++);
+            }
+            return item;
+        } finally {
+            stats.addWait(System.nanoTime() - start);
+        }
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+}
@@ -0,0 +1,100 @@
+package org.globsframework.csv;
+
+/*
+return the same String instance for identical values of a low cardinality column.
+Once more than maxSize distinct values are seen, the dictionary is dropped and values are no more cached.
+Not thread safe.
+ */
+public class StringDictionary {
+    private final int maxSize;
+    private String[] table;
+    private int size;
+    private boolean disabled;
+    private long hitCount;
+    private long missCount;
+
+    public StringDictionary(int maxSize) {
+        this.maxSize = maxSize;
+        table = new String[16];
+    }
+
+    public String get(String value) {
+        return get(value, 0, value.length());
+    }
+
+    public String get(String chars, int from, int to) {
+        if (disabled) {
+            missCount++;
+            return from == 0 && to == chars.length() ? chars : chars.substring(from, to);
+        }
+        int len = to - from;
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + chars.charAt(i);
+        }
+        int mask = table.length - 1;
+        int pos = (hash ^ (hash >>> 16)) & mask;
+        String candidate;
+        while ((candidate = table[pos]) != null) {
+            if (candidate.length() == len && candidate.regionMatches(0, chars, from, len)) {
+                hitCount++;
+                return candidate;
+            }
+            pos = (pos + 1) & mask;
+        }
+        missCount++;
+        String value = from == 0 && to == chars.length() ? chars : chars.substring(from, to);
+        if (size >= maxSize) {
+            disabled = true;
+            table = null;
+            return value;
+        }
+        table[pos] = value;
+        size++;
+        if (size * 2 > table.length) {
+            resize();
+        }
+        return value;
+    }
+
+    private void resize() {
+        String[] old = table;
+        table = new String[old.length * 2];
+        int mask = table.length - 1;
+        for (String value : old) {
+            if (value != null) {
+                int hash = value.hashCode();
+                int pos = (hash ^ (hash >>> 16)) & mask;
+                while (table[pos] != null) {
+                    pos = (pos + 1) & mask;
+                }
+                table[pos] = value;
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isDisabled() {
+        return disabled;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public String toString() {
+        return "size=" + size + " hit=" + hitCount + " miss=" + missCount + (disabled ? " disabled" : "");
+    }
+}
@@ -0,0 +1,145 @@
+package org.globsframework.csv;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.GlobTypeBuilder;
+import org.globsframework.core.metamodel.impl.DefaultGlobTypeBuilder;
+import org.globsframework.csv.annotation.ExportDateFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalQuery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/*
+guess the field type of each column on a sample of lines; a column with values of different types stay a String.
+ */
+class TypeInference {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TypeInference.class);
+    private static final Pattern INTEGRAL = Pattern.compile("[-+]?\\d+");
+    private static final Pattern DECIMAL = Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?");
+    private static final List<DatePattern> DATE_PATTERNS = List.of(
+            new DatePattern("yyyy-MM-dd"),
+            new DatePattern("dd/MM/yyyy"),
+            new DatePattern("yyyy/MM/dd"),
+            new DatePattern("MM/dd/yyyy"),
+            new DatePattern("dd-MM-yyyy"),
+            new DatePattern("dd.MM.yyyy"));
+    private static final List<DatePattern> DATE_TIME_PATTERNS = List.of(
+            new DatePattern("yyyy-MM-dd'T'HH:mm:ss"),
+            new DatePattern("yyyy-MM-dd'T'HH:mm:ss.SSS"),
+            new DatePattern("yyyy-MM-dd HH:mm:ss"),
+            new DatePattern("yyyy-MM-dd HH:mm"),
+            new DatePattern("dd/MM/yyyy HH:mm:ss"),
+            new DatePattern("yyyy/MM/dd HH:mm:ss"));
+
+    static GlobType infer(String typeName, Map<String, Integer> header, List<ImportFile.CsvLine> lines) {
+        GlobTypeBuilder globTypeBuilder = new DefaultGlobTypeBuilder(typeName);
+        for (Map.Entry<String, Integer> entry : header.entrySet()) {
+            ColumnGuess columnGuess = new ColumnGuess();
+            int index = entry.getValue();
+            for (ImportFile.CsvLine line : lines) {
+                if (index < line.size()) {
+                    columnGuess.add(line.getAt(index));
+                }
+            }
+            columnGuess.declare(globTypeBuilder, entry.getKey());
+        }
+        return globTypeBuilder.get();
+    }
+
+    record DatePattern(String pattern, DateTimeFormatter formatter) {
+        DatePattern(String pattern) {
+            this(pattern, DateTimeFormatter.ofPattern(pattern));
+        }
+
+        boolean parse(String value, TemporalQuery<?> query) {
+            try {
+                formatter.parse(value, query);
+                return true;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+    }
+
+    static class ColumnGuess {
+        private final List<DatePattern> datePatterns = new ArrayList<>(DATE_PATTERNS);
+        private final List<DatePattern> dateTimePatterns = new ArrayList<>(DATE_TIME_PATTERNS);
+        private boolean canBeInt = true;
+        private boolean canBeLong = true;
+        private boolean canBeDouble = true;
+        private boolean canBeBoolean = true;
+        private int count;
+
+        void add(String value) {
+            if (value == null || value.isBlank()) {
+                return;
+            }
+            String s = value.trim();
+            count++;
+            // a leading 0 is usually a code (zip, account...) that must stay a string.
+            boolean leadingZero = s.length() > 1 && s.charAt(0) == '0' && s.charAt(1) != '.';
+            if (leadingZero || !INTEGRAL.matcher(s).matches()) {
+                canBeInt = false;
+                canBeLong = false;
+            } else {
+                if (canBeInt) {
+                    try {
+                        Integer.parseInt(s);
+                    } catch (NumberFormatException e) {
+                        canBeInt = false;
+                    }
+                }
+                if (canBeLong) {
+                    try {
+                        Long.parseLong(s);
+                    } catch (NumberFormatException e) {
+                        canBeLong = false;
+                    }
+                }
+            }
+            if (leadingZero || !DECIMAL.matcher(s).matches()) {
+                canBeDouble = false;
+            }
+            if (!s.equalsIgnoreCase("true") && !s.equalsIgnoreCase("false")) {
+                canBeBoolean = false;
+            }
+            if (!datePatterns.isEmpty()) {
+                datePatterns.removeIf(datePattern -> !datePattern.parse(s, LocalDate::from));
+            }
+            if (!dateTimePatterns.isEmpty()) {
+                dateTimePatterns.removeIf(datePattern -> !datePattern.parse(s, LocalDateTime::from));
+            }
+        }
+
+        void declare(GlobTypeBuilder builder, String name) {
+            if (count == 0) {
+                builder.declareStringField(name);
+            } else if (canBeInt) {
+                builder.declareIntegerField(name);
+            } else if (canBeLong) {
+                builder.declareLongField(name);
+            } else if (canBeDouble) {
+                builder.declareDoubleField(name);
+            } else if (canBeBoolean) {
+                builder.declareBooleanField(name);
+            } else if (!datePatterns.isEmpty()) {
+                builder.declareDateField(name, ExportDateFormat.TYPE.instantiate()
+                        .set(ExportDateFormat.FORMAT, datePatterns.get(0).pattern()));
+            } else if (!dateTimePatterns.isEmpty()) {
+                builder.declareDateTimeField(name, ExportDateFormat.TYPE.instantiate()
+                        .set(ExportDateFormat.FORMAT, dateTimePatterns.get(0).pattern()));
+            } else {
+                builder.declareStringField(name);
+            }
+            LOGGER.debug("Column " + name + " inferred on " + count + " values");
+        }
+    }
+}
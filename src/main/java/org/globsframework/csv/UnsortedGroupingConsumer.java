@@ -0,0 +1,337 @@
+package org.globsframework.csv;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.fields.*;
+import org.globsframework.core.model.Glob;
+import org.globsframework.core.model.MutableGlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+/*
+group the lines on the key of the root type when the input is not sorted.
+Lines are kept in memory by key up to memoryBudget (estimated), then dispatched by hash of the key in
+SPILL_PARTITIONS temp files; each partition is then grouped in memory and replayed. A partition bigger than
+memoryBudget is dispatched again in SPILL_PARTITIONS files on the next bits of the hash (up to MAX_DEPTH).
+The key is the converted value of the root fields, as compared by ComplexImporter.FieldMapper.
+Before being replayed, the lines of a root are grouped level by level on the key of each child (first seen order),
+so interleaved children are merged. With many arrays at the same level, the lines are grouped on the first array first.
+Without spill, the root globs are emitted in the order of their first line; with spill, in partition order.
+ */
+class UnsortedGroupingConsumer extends ComplexImporter.ConsumerWithCurrent {
+    private static final Logger LOGGER = LoggerFactory.getLogger(UnsortedGroupingConsumer.class);
+    static final int SPILL_PARTITIONS = 16;
+    static final int PARTITION_BITS = 4;
+    static final int MAX_DEPTH = 32 / PARTITION_BITS - 1;
+    private final ComplexImporter.CompositeState root;
+    private final List<ComplexImporter.LineToTargetField> keyFields;
+    private final long memoryBudget;
+    private Map<List<Object>, List<Glob>> groups = new LinkedHashMap<>();
+    private GlobType lineType;
+    private long usedMemory;
+    private Partitions partitions;
+
+    UnsortedGroupingConsumer(Consumer<Glob> consumer, ComplexImporter.CompositeState root, long memoryBudget) {
+        super(consumer, root);
+        this.root = root;
+        this.keyFields = root.fieldMapper.fields;
+        this.memoryBudget = memoryBudget;
+    }
+
+    public void close() {
+        if (partitions != null) {
+            partitions.delete();
+            partitions = null;
+        }
+    }
+
+    public void accept(Glob line) {
+        lineType = line.getType();
+        groups.computeIfAbsent(key(line), k -> new ArrayList<>()).add(line);
+        usedMemory += estimateSize(line);
+        if (usedMemory > memoryBudget) {
+            spill();
+        }
+    }
+
+    void end() {
+        try {
+            if (partitions == null) {
+                replay(groups);
+            } else {
+                spill();
+                partitions.finish();
+                LOGGER.info(partitions.lineCount + " lines spilled in " + SPILL_PARTITIONS + " partitions");
+                replay(partitions);
+            }
+            super.end();
+        } catch (IOException e) {
+            String message = "Fail to read spilled lines";
+            LOGGER.error(message, e);
+            throw new RuntimeException(message, e);
+        } finally {
+            groups = new LinkedHashMap<>();
+            if (partitions != null) {
+                partitions.delete();
+                partitions = null;
+            }
+        }
+    }
+
+    private void replay(Map<List<Object>, List<Glob>> groups) {
+        for (List<Glob> lines : groups.values()) {
+            for (Glob line : groupChildren(lines, root.attrs, 0)) {
+                super.accept(line);
+            }
+        }
+    }
+
+    // group the lines on the key of the child attrs.get(index), then on its own children and on the next attrs.
+    private List<Glob> groupChildren(List<Glob> lines, List<ComplexImporter.Attr> attrs, int index) {
+        if (index == attrs.size() || lines.size() < 2) {
+            return lines;
+        }
+        ComplexImporter.CompositeState child = (ComplexImporter.CompositeState) attrs.get(index).state();
+        Map<List<Object>, List<Glob>> children = new LinkedHashMap<>();
+        for (Glob line : lines) {
+            children.computeIfAbsent(key(child.fieldMapper.fields, line), k -> new ArrayList<>()).add(line);
+        }
+        List<Glob> grouped = new ArrayList<>(lines.size());
+        for (List<Glob> childLines : children.values()) {
+            grouped.addAll(groupChildren(groupChildren(childLines, child.attrs, 0), attrs, index + 1));
+        }
+        return grouped;
+    }
+
+    private void replay(Partitions spilled) throws IOException {
+        for (int i = 0; i < SPILL_PARTITIONS; i++) {
+            if (spilled.sizes[i] > memoryBudget && spilled.depth < MAX_DEPTH) {
+                Partitions subPartitions = new Partitions(spilled.depth + 1);
+                try {
+                    try (DataInputStream input = spilled.open(i)) {
+                        while (input.readBoolean()) {
+                            Glob line = readLine(input);
+                            subPartitions.write(key(line), line);
+                        }
+                    }
+                    subPartitions.finish();
+                    replay(subPartitions);
+                } finally {
+                    subPartitions.delete();
+                }
+            } else {
+                if (spilled.sizes[i] > memoryBudget) {
+                    LOGGER.warn("Partition of " + spilled.sizes[i] + " bytes loaded above the memory budget (a root with too many lines?)");
+                }
+                Map<List<Object>, List<Glob>> partitionGroups = new LinkedHashMap<>();
+                try (DataInputStream input = spilled.open(i)) {
+                    while (input.readBoolean()) {
+                        Glob line = readLine(input);
+                        partitionGroups.computeIfAbsent(key(line), k -> new ArrayList<>()).add(line);
+                    }
+                }
+                replay(partitionGroups);
+            }
+        }
+    }
+
+    private List<Object> key(Glob line) {
+        return key(keyFields, line);
+    }
+
+    private static List<Object> key(List<ComplexImporter.LineToTargetField> fields, Glob line) {
+        Object[] key = new Object[fields.size()];
+        for (int i = 0; i < key.length; i++) {
+            ComplexImporter.LineToTargetField field = fields.get(i);
+            Object value = line.getValue(field.from());
+            key[i] = value == null ? null : field.convertValue(value);
+        }
+        return Arrays.asList(key);
+    }
+
+    private void spill() {
+        try {
+            if (partitions == null) {
+                partitions = new Partitions(0);
+            }
+            for (Map.Entry<List<Object>, List<Glob>> entry : groups.entrySet()) {
+                for (Glob line : entry.getValue()) {
+                    partitions.write(entry.getKey(), line);
+                }
+            }
+            groups.clear();
+            usedMemory = 0;
+        } catch (IOException e) {
+            partitions.delete();
+            partitions = null;
+            String message = "Fail to spill lines to disk";
+            LOGGER.error(message, e);
+            throw new RuntimeException(message, e);
+        }
+    }
+
+    // the temp files of one level of spill; depth select the bits of the hash of the key.
+    private class Partitions {
+        private final int depth;
+        private final Path[] files = new Path[SPILL_PARTITIONS];
+        private final DataOutputStream[] outputs = new DataOutputStream[SPILL_PARTITIONS];
+        private final long[] sizes = new long[SPILL_PARTITIONS];
+        private long lineCount;
+
+        Partitions(int depth) throws IOException {
+            this.depth = depth;
+            try {
+                for (int i = 0; i < SPILL_PARTITIONS; i++) {
+                    files[i] = Files.createTempFile("globs-csv-group-" + depth + "-" + i + "-", ".bin");
+                    outputs[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(files[i])));
+                }
+            } catch (IOException e) {
+                delete();
+                throw e;
+            }
+        }
+
+        void write(List<Object> key, Glob line) throws IOException {
+            int hash = key.hashCode() * 0x9E3779B9;
+            int index = (hash >>> (PARTITION_BITS * depth)) & (SPILL_PARTITIONS - 1);
+            outputs[index].writeBoolean(true);
+            writeLine(outputs[index], line);
+            sizes[index] += estimateSize(line);
+            lineCount++;
+        }
+
+        void finish() throws IOException {
+            for (int i = 0; i < SPILL_PARTITIONS; i++) {
+                outputs[i].writeBoolean(false);
+                outputs[i].close();
+                outputs[i] = null;
+            }
+        }
+
+        DataInputStream open(int index) throws IOException {
+            return new DataInputStream(new BufferedInputStream(Files.newInputStream(files[index])));
+        }
+
+        void delete() {
+            for (int i = 0; i < SPILL_PARTITIONS; i++) {
+                try {
+                    if (outputs[i] != null) {
+                        outputs[i].close();
+                    }
+                    if (files[i] != null) {
+                        Files.deleteIfExists(files[i]);
+                    }
+                } catch (IOException e) {
+                    LOGGER.warn("Fail to delete " + files[i], e);
+                }
+            }
+        }
+    }
+
+    // each line is preceded by true, the partition end with false.
+    private void writeLine(DataOutputStream output, Glob line) throws IOException {
+        for (Field field : lineType.getFields()) {
+            Object value = line.getValue(field);
+            if (value == null) {
+                output.writeByte(0);
+            } else if (field instanceof StringField) {
+                output.writeByte(1);
+                byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            } else if (field instanceof IntegerField) {
+                output.writeByte(1);
+                output.writeInt((Integer) value);
+            } else if (field instanceof LongField) {
+                output.writeByte(1);
+                output.writeLong((Long) value);
+            } else if (field instanceof DoubleField) {
+                output.writeByte(1);
+                output.writeDouble((Double) value);
+            } else if (field instanceof BooleanField) {
+                output.writeByte(1);
+                output.writeBoolean((Boolean) value);
+            } else if (field instanceof DateField) {
+                output.writeByte(1);
+                output.writeLong(((LocalDate) value).toEpochDay());
+            } else if (field instanceof DateTimeField) {
+                ZonedDateTime dateTime = (ZonedDateTime) value;
+                output.writeByte(1);
+                output.writeLong(dateTime.toEpochSecond());
+                output.writeInt(dateTime.getNano());
+                output.writeUTF(dateTime.getZone().getId());
+            } else if (field instanceof BigDecimalField) {
+                BigDecimal bigDecimal = (BigDecimal) value;
+                byte[] bytes = bigDecimal.unscaledValue().toByteArray();
+                output.writeByte(1);
+                output.writeInt(bigDecimal.scale());
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            } else {
+                String message = "Spill to disk not supported for " + field.getFullName() + " of type " + field.getDataType();
+                LOGGER.error(message);
+                throw new RuntimeException(message);
+            }
+        }
+    }
+
+    private Glob readLine(DataInputStream input) throws IOException {
+        MutableGlob line = lineType.instantiate();
+        for (Field field : lineType.getFields()) {
+            if (input.readByte() == 0) {
+                continue;
+            }
+            if (field instanceof StringField stringField) {
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                line.set(stringField, new String(bytes, StandardCharsets.UTF_8));
+            } else if (field instanceof IntegerField integerField) {
+                line.set(integerField, input.readInt());
+            } else if (field instanceof LongField longField) {
+                line.set(longField, input.readLong());
+            } else if (field instanceof DoubleField doubleField) {
+                line.set(doubleField, input.readDouble());
+            } else if (field instanceof BooleanField booleanField) {
+                line.set(booleanField, input.readBoolean());
+            } else if (field instanceof DateField dateField) {
+                line.set(dateField, LocalDate.ofEpochDay(input.readLong()));
+            } else if (field instanceof DateTimeField dateTimeField) {
+                long epochSecond = input.readLong();
+                int nano = input.readInt();
+                ZoneId zoneId = ZoneId.of(input.readUTF());
+                line.set(dateTimeField, ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), zoneId));
+            } else if (field instanceof BigDecimalField bigDecimalField) {
+                int scale = input.readInt();
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                line.set(bigDecimalField, new BigDecimal(new BigInteger(bytes), scale));
+            }
+        }
+        return line;
+    }
+
+    private static long estimateSize(Glob line) {
+        long size = 64;
+        for (Field field : line.getType().getFields()) {
+            Object value = line.getValue(field);
+            if (value instanceof String str) {
+                size += 40 + 2L * str.length();
+            } else if (value != null) {
+                size += 16;
+            }
+        }
+        return size;
+    }
+}
@@ -6,5 +6,6 @@ import org.globsframework.core.metamodel.impl.DefaultGlobModel;
 public class AllCsvAnnotations {
     public static GlobModel MODEL =
             new DefaultGlobModel(ExportBooleanFormat.TYPE, ExportColumnSize.TYPE, ExportDateFormat.TYPE,
-                    ImportEmptyStringHasEmptyStringFormat.TYPE, CsvSeparator.TYPE, NamedExport.TYPE, ReNamedExport.TYPE, CsvValueSeparator.TYPE);
+                    ImportEmptyStringHasEmptyStringFormat.TYPE, CsvSeparator.TYPE, NamedExport.TYPE, ReNamedExport.TYPE, CsvValueSeparator.TYPE,
+                    ImportStringDictionary.TYPE);
 }
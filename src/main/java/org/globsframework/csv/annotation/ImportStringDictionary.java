@@ -0,0 +1,25 @@
+package org.globsframework.csv.annotation;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.GlobTypeLoaderFactory;
+import org.globsframework.core.metamodel.annotations.GlobCreateFromAnnotation;
+import org.globsframework.core.metamodel.annotations.InitUniqueKey;
+import org.globsframework.core.metamodel.fields.IntegerField;
+import org.globsframework.core.model.Key;
+
+public class ImportStringDictionary {
+    public static GlobType TYPE;
+
+    public static IntegerField MAX_SIZE;
+
+    @InitUniqueKey
+    public static Key KEY;
+
+    static {
+        GlobTypeLoaderFactory.create(ImportStringDictionary.class, "ImportStringDictionary")
+                .register(GlobCreateFromAnnotation.class, annotation -> TYPE.instantiate()
+                        .set(MAX_SIZE, ((ImportStringDictionary_) annotation).value())
+                )
+                .load();
+    }
+}
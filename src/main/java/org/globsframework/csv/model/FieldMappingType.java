@@ -11,7 +11,8 @@ import org.globsframework.json.annottations.IsJsonContent_;
 public class FieldMappingType {
     public static GlobType TYPE;
 
-    @Targets({FromType.class, TemplateType.class, SumData.class, OverrideData.class, MappingData.class, JoinType.class})
+    @Targets({FromType.class, TemplateType.class, SumData.class, OverrideData.class, MappingData.class, JoinType.class,
+            ExpressionType.class})
     public static GlobUnionField from;
 
     public static StringField to;
@@ -82,6 +83,17 @@ public class FieldMappingType {
         }
     }
 
+    public static class ExpressionType {
+        public static GlobType TYPE;
+
+        // ex: qty * price, status == 'C' ? -amount : amount, upper(name ?? 'unknown') (see Expression)
+        public static StringField expression;
+
+        static {
+            GlobTypeLoaderFactory.create(ExpressionType.class).load();
+        }
+    }
+
     public static class JoinType {
         public static GlobType TYPE;
 
@@ -151,6 +163,14 @@ public class FieldMappingType {
         @Target(KeyValue.class)
         public static GlobArrayField mapping;
 
+        public static StringField externalFile; // csv of key, value used if no key in mapping, loaded once
+
+        public static StringField externalSeparator; // default ','
+
+        public static BooleanField externalWithHeader;
+
+        public static StringField externalCompactFile; // built by CompactMappingTable.write, memory mapped
+
         static {
             GlobTypeLoaderFactory.create(MappingData.class).load();
         }
@@ -1,5 +1,10 @@
 package org.globsframework.csv;
 
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
 import org.globsframework.core.metamodel.GlobType;
 import org.globsframework.core.metamodel.GlobTypeLoaderFactory;
 import org.globsframework.core.metamodel.annotations.IsDate_;
@@ -13,11 +18,21 @@ import org.globsframework.csv.annotation.NamedExport_;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -187,6 +202,69 @@ public class ExportBySizeTest {
     }
 
 
+    @Test
+    public void exportExcel() throws IOException {
+        Glob data1 = Data.TYPE.instantiate().set(Data.NAME, "some data")
+                .set(Data.COUNT, 300)
+                .set(Data.VALUE, 3235.14153)
+                .set(Data.DATE_AS_INT, (int) LocalDate.of(2018, 01, 02).toEpochDay())
+                .set(Data.DATE, LocalDate.of(2019, 01, 02));
+        Glob data2 = Data.TYPE.instantiate().set(Data.NAME, "some, \"other\" data");
+
+        ExportBySize exportBySize = new ExportBySize().withExcelRowWindow(1);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        exportBySize.exportExcel(Data.TYPE, Stream.of(data1, data2), outputStream);
+
+        try (Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            Row header = sheet.getRow(0);
+            assertEquals("name", header.getCell(0).getStringCellValue());
+            assertEquals("date", header.getCell(4).getStringCellValue());
+            Row first = sheet.getRow(1);
+            assertEquals("some data", first.getCell(0).getStringCellValue());
+            assertEquals(CellType.NUMERIC, first.getCell(1).getCellType());
+            assertEquals(300., first.getCell(1).getNumericCellValue(), 0.);
+            assertEquals(3235.14153, first.getCell(2).getNumericCellValue(), 0.000001);
+            assertEquals(LocalDate.of(2018, 01, 02), first.getCell(3).getLocalDateTimeCellValue().toLocalDate());
+            assertEquals(LocalDate.of(2019, 01, 02), first.getCell(4).getLocalDateTimeCellValue().toLocalDate());
+            Row second = sheet.getRow(2);
+            assertEquals("some, \"other\" data", second.getCell(0).getStringCellValue());
+            Assert.assertNull(second.getCell(1));
+        }
+    }
+
+    @Test
+    public void exportExcelBigLongAndZonedDateTime() throws IOException {
+        long big = (1L << 53) + 1;
+        Glob data = BigData.TYPE.instantiate().set(BigData.ID, big).set(BigData.SMALL, 42L)
+                .set(BigData.TIME, ZonedDateTime.of(2024, 1, 15, 10, 30, 0, 0, ZoneId.of("Asia/Tokyo")));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new ExportBySize().withExcelZoneId(ZoneId.of("UTC")).exportExcel(Stream.of(data), outputStream);
+
+        try (Workbook workbook = WorkbookFactory.create(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Row row = workbook.getSheetAt(0).getRow(0);
+            assertEquals(CellType.STRING, row.getCell(0).getCellType());
+            assertEquals(String.valueOf(big), row.getCell(0).getStringCellValue());
+            assertEquals(CellType.NUMERIC, row.getCell(1).getCellType());
+            assertEquals(42., row.getCell(1).getNumericCellValue(), 0.);
+            assertEquals(LocalDateTime.of(2024, 1, 15, 1, 30), row.getCell(2).getLocalDateTimeCellValue());
+        }
+    }
+
+    public static class BigData {
+        public static GlobType TYPE;
+
+        public static LongField ID;
+
+        public static LongField SMALL;
+
+        public static DateTimeField TIME;
+
+        static {
+            GlobTypeLoaderFactory.create(BigData.class).load();
+        }
+    }
+
     public static class DataWithArray {
         public static GlobType TYPE;
 
@@ -214,6 +292,53 @@ public class ExportBySizeTest {
         Assert.assertEquals(expected, writer.toString());
     }
 
+    @Test
+    public void escapeSpecialChars() {
+        StringWriter writer = new StringWriter();
+        ExportBySize exportBySize = new ExportBySize().withSeparator(';');
+        exportBySize.export(Stream.of("abc", "a;b", "a\"b", "a\nb", "a;\"b\nc")
+                .map(s -> Data.TYPE.instantiate().set(Data.NAME, s)), writer);
+        assertEquals("abc;;;;\n" +
+                     "\"a;b\";;;;\n" +
+                     "\"a\"\"b\";;;;\n" +
+                     "a\\nb;;;;\n" +
+                     "\"a;\"\"b\\nc\";;;;\n", writer.toString());
+
+        StringWriter arrayWriter = new StringWriter();
+        new ExportBySize().withSeparator(';')
+                .export(Stream.of(DataWithArray.TYPE.instantiate()
+                        .set(DataWithArray.names, new String[]{"x;y", "z\"w", "n\nl"})), arrayWriter);
+        assertEquals("\"x;y\",z\"w,n\\nl\n", arrayWriter.toString());
+    }
+
+    @Test
+    public void positionalExport() throws IOException {
+        List<Glob> globs = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            globs.add(Data.TYPE.instantiate().set(Data.NAME, "name " + i)
+                    .set(Data.COUNT, i)
+                    .set(Data.VALUE, i / 10.)
+                    .set(Data.DATE, LocalDate.of(2019, 01, 02).plusDays(i % 300)));
+        }
+        StringWriter writer = new StringWriter();
+        new ExportBySize().withRightPadding().export(globs.stream(), writer);
+
+        Path file = Files.createTempFile("positional", ".txt");
+        try {
+            new ExportBySize().withRightPadding().exportFixedSize(globs, file, StandardCharsets.ISO_8859_1, 4);
+            assertEquals(writer.toString(), Files.readString(file, StandardCharsets.ISO_8859_1));
+
+            try {
+                new ExportBySize().withRightPadding().exportFixedSize(List.of(Data.TYPE.instantiate().set(Data.NAME, "\u00e9t\u00e9")),
+                        file, StandardCharsets.UTF_8, 2);
+                Assert.fail();
+            } catch (RuntimeException e) {
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
     @Test
     public void filterByName() {
         MutableGlob data = Data.TYPE.instantiate().set(Data.NAME, "some data")
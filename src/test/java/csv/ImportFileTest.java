@@ -9,17 +9,25 @@ import org.globsframework.csv.annotation.ExportDateFormat_;
 import org.globsframework.csv.annotation.ImportEmptyStringHasEmptyStringFormat_;
 import org.globsframework.csv.annotation.ReNamedExport_;
 import org.globsframework.csv.annotation.ReNamedMappingExport_;
+import org.globsframework.csv.model.FieldMappingType;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.function.Consumer;
 
 import static org.junit.Assert.fail;
@@ -255,6 +263,375 @@ public class ImportFileTest {
 
     }
 
+    @Test
+    public void extractHeaderWithPipe() throws IOException {
+        GlobType globType = ImportFile.extractHeader(new ByteArrayInputStream("PR|TA|A\ne|z|a".getBytes()), null);
+        Assert.assertEquals(3, globType.getFieldCount());
+    }
+
+    @Test
+    public void sniffAndImportInOnePass() throws IOException {
+        String content = "PRODUCT_ID;sku\n" +
+                "1;\"REF;1\"\n" +
+                "2;REF_2\n" +
+                "3;REF_3\n";
+        CsvSniffer.Result sniffed = new CsvSniffer().sniff(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+        Assert.assertEquals(';', sniffed.getSeparator());
+        Assert.assertEquals('"', sniffed.getQuoteChar());
+        Assert.assertTrue(sniffed.hasHeader());
+        Assert.assertEquals(2, sniffed.getFieldCount());
+        Assert.assertEquals(2, ImportFile.extractHeader(sniffed).getFieldCount());
+
+        List<Glob> imports = new ArrayList<>();
+        new ImportFile().withSniffed(sniffed)
+                .create(sniffed.getInputStream(), Type.TYPE)
+                .consume(imports::add);
+        Assert.assertEquals(3, imports.size());
+        Assert.assertEquals("REF;1", imports.get(0).get(Type.SKU));
+
+        imports.clear();
+        new ImportFile().createAutoDetect(new ByteArrayInputStream("1,a\n2,b\n3,c\n".getBytes(StandardCharsets.UTF_8)), null)
+                .consume(imports::add);
+        Assert.assertEquals(3, imports.size());
+        GlobType type = imports.get(0).getType();
+        Assert.assertEquals("1", imports.get(0).get(type.getField("column_1").asStringField()));
+    }
+
+    @Test
+    public void withTypeInference() throws IOException {
+        ImportFile importFile = new ImportFile();
+        importFile.withSeparator(',').withTypeInference(100);
+
+        ImportFile.Importer importer = importFile.create(new StringReader(
+                "id,big,amount,flag,day,time,zip,mixed\n" +
+                        "1,10000000000,1.5,true,2020-11-30,2020-11-30 22:32:00,01234,1\n" +
+                        "2,3,2,FALSE,2020-12-01,2020-12-01 10:00:00,75001,a\n" +
+                        "3,,,,,,,\n"
+        ));
+        GlobType type = importer.getType();
+        Assert.assertTrue(type.getField("id") instanceof IntegerField);
+        Assert.assertTrue(type.getField("big") instanceof LongField);
+        Assert.assertTrue(type.getField("amount") instanceof DoubleField);
+        Assert.assertTrue(type.getField("flag") instanceof BooleanField);
+        Assert.assertTrue(type.getField("day") instanceof DateField);
+        Assert.assertTrue(type.getField("time") instanceof DateTimeField);
+        Assert.assertTrue(type.getField("zip") instanceof StringField);
+        Assert.assertTrue(type.getField("mixed") instanceof StringField);
+
+        List<Glob> imports = new ArrayList<>();
+        importer.consume(imports::add);
+        Assert.assertEquals(3, imports.size());
+        Assert.assertEquals(10000000000L, imports.get(0).get((LongField) type.getField("big")).longValue());
+        Assert.assertEquals(LocalDate.of(2020, 12, 1), imports.get(1).get((DateField) type.getField("day")));
+        Assert.assertEquals("01234", imports.get(0).get((StringField) type.getField("zip")));
+        Assert.assertNull(imports.get(2).get((LongField) type.getField("big")));
+    }
+
+    @Test
+    public void withStringDictionary() throws IOException {
+        ImportFile importFile = new ImportFile();
+        importFile.withSeparator(',').withStringDictionary(2);
+
+        List<Glob> imports = new ArrayList<>();
+        importFile.importContent(new StringReader(
+                "PRODUCT_ID,sku\n" +
+                        "1,FR\n" +
+                        "2,FR \n" +
+                        "3,US\n" +
+                        "4,DE\n" +
+                        "5,IT\n"
+        ), imports::add, Type.TYPE);
+        Assert.assertEquals(5, imports.size());
+        Assert.assertSame(imports.get(0).get(Type.SKU), imports.get(1).get(Type.SKU));
+        Assert.assertEquals("IT", imports.get(4).get(Type.SKU));
+        StringDictionary dictionary = importFile.getStringDictionaries().get(Type.SKU.getFullName());
+        Assert.assertEquals(1, dictionary.getHitCount());
+        Assert.assertTrue(dictionary.isDisabled());
+    }
+
+    @Test
+    public void importColumnar() throws IOException {
+        ImportFile importFile = new ImportFile();
+        importFile.withSeparator(',');
+
+        List<ColumnarBatch> batches = new ArrayList<>();
+        importFile.importColumnar(new StringReader(
+                "PRODUCT_ID,sku,date\n" +
+                        "1,FR,20240115\n" +
+                        ",FR,\n" +
+                        "3,US,20240117\n"
+        ), Type.TYPE, 2, batches::add);
+        Assert.assertEquals(2, batches.size());
+        ColumnarBatch first = batches.get(0);
+        Assert.assertEquals(2, first.size());
+        Assert.assertEquals(1, first.getColumn(Type.ID).get(0));
+        Assert.assertFalse(first.isSet(Type.ID, 1));
+        Assert.assertFalse(first.isSet(Type.date, 1));
+        Assert.assertEquals(1, first.getColumn(Type.SKU).getDictionary().size());
+        Assert.assertEquals(LocalDate.of(2024, 1, 15), first.getGlob(0).get(Type.date));
+        Assert.assertEquals((int) LocalDate.of(2024, 1, 17).toEpochDay(), batches.get(1).getColumn(Type.date).getEpochDay(0));
+        Assert.assertEquals("US", batches.get(1).getGlob(0).get(Type.SKU));
+    }
+
+    @Test
+    public void importColumnarDateTime() throws IOException {
+        String content = "PRODUCT_ID,dateTime,dateTimeWithoutTime\n" +
+                "1,20201130 223200,20201130\n";
+        List<Glob> imports = new ArrayList<>();
+        new ImportFile().withSeparator(',').importContent(new StringReader(content), imports::add, Type.TYPE);
+        List<ColumnarBatch> batches = new ArrayList<>();
+        new ImportFile().withSeparator(',').importColumnar(new StringReader(content), Type.TYPE, 10, batches::add);
+        Glob glob = batches.get(0).getGlob(0);
+        Assert.assertEquals(imports.get(0).get(Type.dateTime), glob.get(Type.dateTime));
+        Assert.assertEquals(imports.get(0).get(Type.dateTimeWithoutTime), glob.get(Type.dateTimeWithoutTime));
+        Assert.assertEquals(imports.get(0).get(Type.dateTimeWithoutTime).getZone(), batches.get(0).getColumn(Type.dateTimeWithoutTime).getZone(0));
+        try {
+            new ImportFile().withSeparator(',').importColumnar(new StringReader(content), Type.TYPE, 0, batches::add);
+            Assert.fail("batch size must be positive");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("batch size"));
+        }
+    }
+
+    @Test
+    public void pipelinedImport() throws IOException {
+        StringBuilder content = new StringBuilder("PRODUCT_ID,sku\n");
+        for (int i = 0; i < 50000; i++) {
+            content.append(i).append(",REF_").append(i).append("\n");
+        }
+        List<Glob> imports = new ArrayList<>();
+        ImportPipeline pipeline = new ImportPipeline(100, 4, ImportPipeline.WaitStrategy.PARK);
+        new ImportFile().withSeparator(',').withPipeline(pipeline)
+                .importContent(new StringReader(content.toString()), imports::add, Type.TYPE);
+        Assert.assertEquals(50000, imports.size());
+        for (int i = 0; i < imports.size(); i++) {
+            Assert.assertEquals(i, imports.get(i).get(Type.ID).intValue());
+        }
+        Assert.assertEquals(4, pipeline.getStats().size());
+        Assert.assertEquals(50000, pipeline.getStats().get(0).getItems());
+        Assert.assertEquals(50000, pipeline.getStats().get(3).getItems());
+
+        imports.clear();
+        new ImportFile().withSeparator(',').withPipeline(new ImportPipeline(10, 2, ImportPipeline.WaitStrategy.YIELD))
+                .withSkip(5).withLimit(10)
+                .importContent(new StringReader(content.toString()), imports::add, Type.TYPE);
+        Assert.assertEquals(10, imports.size());
+        Assert.assertEquals(5, imports.get(0).get(Type.ID).intValue());
+
+        try {
+            new ImportFile().withSeparator(',').withPipeline(new ImportPipeline())
+                    .importContent(new StringReader("PRODUCT_ID,sku\n1,a\nX,b\n3,c\n"), imports::add, Type.TYPE);
+            fail();
+        } catch (RuntimeException e) {
+        }
+    }
+
+    @Test
+    public void pipelinedTransformBatch() throws IOException {
+        StringBuilder content = new StringBuilder("PRODUCT_ID,sku\n");
+        for (int i = 0; i < 1000; i++) {
+            content.append(i).append(",REF_").append(i).append("\n");
+        }
+        int[] calls = {0, 0};
+        Reformater.CustomDataAccessFactory factory = (fieldName, lineType, name, params) -> new Reformater.CustomDataAccess() {
+            public String get(String fieldName, List<String> input, Glob data) {
+                calls[0]++;
+                return input.get(0) + "_" + input.get(1);
+            }
+
+            public List<String> getAll(String fieldName, List<List<String>> inputs, List<Glob> data) {
+                calls[1]++;
+                return inputs.stream().map(i -> i.get(0) + "_" + i.get(1)).toList();
+            }
+        };
+        List<Glob> imports = new ArrayList<>();
+        new ImportFile().withSeparator(',').withPipeline(new ImportPipeline(100, 4, ImportPipeline.WaitStrategy.PARK))
+                .withTransformBatch(50)
+                .withTransformer(List.of(FieldMappingType.TYPE.instantiate()
+                        .set(FieldMappingType.to, "ref")
+                        .set(FieldMappingType.from, FieldMappingType.OverrideData.TYPE.instantiate()
+                                .set(FieldMappingType.OverrideData.name, "lookup")
+                                .set(FieldMappingType.OverrideData.inputField, new Glob[]{
+                                        FieldMappingType.FromType.TYPE.instantiate().set(FieldMappingType.FromType.from, Type.ID.getName()),
+                                        FieldMappingType.FromType.TYPE.instantiate().set(FieldMappingType.FromType.from, Type.SKU.getName())}))
+                ), false, Map.of(), factory)
+                .importContent(new StringReader(content.toString()), imports::add, Type.TYPE);
+        Assert.assertEquals(1000, imports.size());
+        Field ref = imports.get(0).getType().getField("ref");
+        Assert.assertEquals("999_REF_999", imports.get(999).getValue(ref));
+        Assert.assertEquals(0, calls[0]);
+        Assert.assertEquals(20, calls[1]);
+    }
+
+    @Test
+    public void skipLimitAndSample() throws IOException {
+        StringBuilder content = new StringBuilder("PRODUCT_ID,sku\n");
+        for (int i = 0; i < 100000; i++) {
+            content.append(i).append(",REF_").append(i).append("\n");
+        }
+        int[] read = {0};
+        Reader reader = new StringReader(content.toString()) {
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                int count = super.read(cbuf, off, len);
+                read[0] += Math.max(count, 0);
+                return count;
+            }
+        };
+        List<Glob> imports = new ArrayList<>();
+        new ImportFile().withSeparator(',').withSkip(2).withLimit(3)
+                .importContent(reader, imports::add, Type.TYPE);
+        Assert.assertEquals(3, imports.size());
+        Assert.assertEquals(2, imports.get(0).get(Type.ID).intValue());
+        Assert.assertEquals(4, imports.get(2).get(Type.ID).intValue());
+        Assert.assertTrue(read[0] < content.length() / 10);
+
+        imports.clear();
+        new ImportFile().withSeparator(',').withSample(10, new Random(42))
+                .importContent(new StringReader(content.toString()), imports::add, Type.TYPE);
+        Assert.assertEquals(10, imports.size());
+        for (int i = 1; i < imports.size(); i++) {
+            Assert.assertTrue(imports.get(i - 1).get(Type.ID) < imports.get(i).get(Type.ID));
+        }
+    }
+
+    @Test
+    public void reusedGlobs() throws IOException {
+        StringBuilder content = new StringBuilder("PRODUCT_ID,sku\n");
+        for (int i = 0; i < 100; i++) {
+            content.append(i % 2 == 0 ? String.valueOf(i) : "").append(",REF_").append(i).append("\n");
+        }
+        List<Glob> seen = new ArrayList<>();
+        List<Glob> kept = new ArrayList<>();
+        new ImportFile().withSeparator(',').withReusedGlobs(true)
+                .importContent(new StringReader(content.toString()), glob -> {
+                    seen.add(glob);
+                    kept.add(glob.duplicate());
+                }, Type.TYPE);
+        Assert.assertEquals(100, kept.size());
+        Assert.assertSame(seen.get(0), seen.get(99));
+        Assert.assertEquals(98, kept.get(98).get(Type.ID).intValue());
+        Assert.assertEquals("REF_99", kept.get(99).get(Type.SKU));
+        Assert.assertFalse(kept.get(99).isSet(Type.ID));
+
+        seen.clear();
+        kept.clear();
+        new ImportFile().withSeparator(',').withReusedGlobs(true)
+                .withTransformer(List.of(FieldMappingType.TYPE.instantiate()
+                        .set(FieldMappingType.to, "ref")
+                        .set(FieldMappingType.from, FieldMappingType.FromType.TYPE.instantiate()
+                                .set(FieldMappingType.FromType.from, Type.ID.getName()))), false)
+                .importContent(new StringReader(content.toString()), glob -> {
+                    seen.add(glob);
+                    kept.add(glob.duplicate());
+                }, Type.TYPE);
+        Assert.assertSame(seen.get(0), seen.get(1));
+        Field ref = kept.get(0).getType().getField("ref");
+        Assert.assertEquals("4", kept.get(4).getValue(ref));
+        Assert.assertFalse(kept.get(5).isSet(ref));
+    }
+
+    @Test
+    public void filterOnRawColumns() throws IOException {
+        String content = "PRODUCT_ID,sku,date\n" +
+                "1,REF_1,20240115\n" +
+                "2,REF_2,\n" +
+                "3,OTHER_3,20240117\n" +
+                "4,REF_4,20240118\n" +
+                "5,REF_5,20240119\n";
+        List<Glob> imports = new ArrayList<>();
+        new ImportFile().withSeparator(',')
+                .filter(Type.ID, ColumnFilter.between(2, 4))
+                .filter("sku", ColumnFilter.startsWith("REF"))
+                .importContent(new StringReader(content), imports::add, Type.TYPE);
+        Assert.assertEquals(2, imports.size());
+        Assert.assertEquals(2, imports.get(0).get(Type.ID).intValue());
+        Assert.assertEquals(4, imports.get(1).get(Type.ID).intValue());
+
+        imports.clear();
+        new ImportFile().withSeparator(',')
+                .filter("date", ColumnFilter.isNull())
+                .importContent(new StringReader(content), imports::add, Type.TYPE);
+        Assert.assertEquals(1, imports.size());
+        Assert.assertEquals("REF_2", imports.get(0).get(Type.SKU));
+
+        imports.clear();
+        new ImportFile().withSeparator(',')
+                .filter("sku", ColumnFilter.in(List.of("REF_1", "REF_5")))
+                .importContent(new StringReader(content), imports::add, Type.TYPE);
+        Assert.assertEquals(2, imports.size());
+
+        try {
+            new ImportFile().withSeparator(',')
+                    .filter("unknown", ColumnFilter.equalsTo("1"))
+                    .importContent(new StringReader(content), imports::add, Type.TYPE);
+            fail();
+        } catch (RuntimeException e) {
+        }
+    }
+
+    @Test
+    public void randomAccess() throws IOException {
+        Path fixFile = Files.createTempFile("fix", ".txt");
+        Path csvFile = Files.createTempFile("indexed", ".csv");
+        try {
+            List<Glob> globs = new ArrayList<>();
+            StringBuilder csv = new StringBuilder("PRODUCT_ID,sku\n");
+            for (int i = 0; i < 1000; i++) {
+                globs.add(ExportBySizeTest.Data.TYPE.instantiate()
+                        .set(ExportBySizeTest.Data.NAME, "n" + i)
+                        .set(ExportBySizeTest.Data.COUNT, i));
+                csv.append(i).append(i % 7 == 0 ? ",\"REF\n" + i + "\"\n" : ",REF_" + i + "\n");
+                if (i % 100 == 0) {
+                    csv.append("\n");
+                }
+                if (i % 100 == 50) {
+                    csv.append(",\n\"\",\n");
+                }
+            }
+            StringWriter writer = new StringWriter();
+            new ExportBySize().withRightPadding().export(globs.stream(), writer);
+            Files.writeString(fixFile, writer.toString(), StandardCharsets.ISO_8859_1);
+            try (RecordFile file = new ImportFile().trim().withCharSet(StandardCharsets.ISO_8859_1)
+                    .openFixSize(fixFile, ExportBySizeTest.Data.TYPE)) {
+                Assert.assertEquals(1000, file.size());
+                Assert.assertEquals(523, file.get(523).get(ExportBySizeTest.Data.COUNT).intValue());
+                Assert.assertEquals("n523", file.get(523).get(ExportBySizeTest.Data.NAME));
+                List<Glob> range = new ArrayList<>();
+                file.read(998, 10, range::add);
+                Assert.assertEquals(2, range.size());
+                Assert.assertEquals(999, range.get(1).get(ExportBySizeTest.Data.COUNT).intValue());
+                List<Glob> sample = new ArrayList<>();
+                file.sample(10, new Random(42), sample::add);
+                Assert.assertEquals(10, sample.size());
+                for (int i = 1; i < sample.size(); i++) {
+                    Assert.assertTrue(sample.get(i - 1).get(ExportBySizeTest.Data.COUNT) < sample.get(i).get(ExportBySizeTest.Data.COUNT));
+                }
+            }
+
+            Files.writeString(csvFile, csv.toString(), StandardCharsets.UTF_8);
+            List<Glob> streamed = new ArrayList<>();
+            new ImportFile().withSeparator(',').importContent(new StringReader(csv.toString()), streamed::add, Type.TYPE);
+            for (int open = 0; open < 2; open++) {
+                try (RecordFile file = new ImportFile().withSeparator(',').openIndexed(csvFile, Type.TYPE, 10)) {
+                    Assert.assertEquals(1000, file.size());
+                    Assert.assertEquals(523, file.get(523).get(Type.ID).intValue());
+                    Assert.assertEquals("REF_523", file.get(523).get(Type.SKU));
+                    Assert.assertEquals("REF\n700", file.get(700).get(Type.SKU));
+                    Assert.assertEquals(701, file.get(701).get(Type.ID).intValue());
+                    Assert.assertEquals(streamed.size(), file.size());
+                    for (int i = 0; i < streamed.size(); i += 49) {
+                        Assert.assertEquals(streamed.get(i).get(Type.ID), file.get(i).get(Type.ID));
+                    }
+                }
+                Assert.assertTrue(Files.exists(csvFile.resolveSibling(csvFile.getFileName() + ".idx")));
+            }
+        } finally {
+            Files.deleteIfExists(fixFile);
+            Files.deleteIfExists(csvFile);
+            Files.deleteIfExists(csvFile.resolveSibling(csvFile.getFileName() + ".idx"));
+        }
+    }
+
     @Test
     public void testWithQuoteChar() throws IOException {
         ImportFile importFile = new ImportFile();
@@ -3,19 +3,24 @@ package org.globsframework.csv;
 import org.globsframework.core.metamodel.GlobType;
 import org.globsframework.core.metamodel.GlobTypeLoaderFactory;
 import org.globsframework.core.metamodel.annotations.Target;
+import org.globsframework.core.metamodel.fields.DateField;
 import org.globsframework.core.metamodel.fields.GlobArrayField;
 import org.globsframework.core.metamodel.fields.GlobField;
 import org.globsframework.core.metamodel.fields.IntegerField;
 import org.globsframework.core.metamodel.fields.StringField;
 import org.globsframework.core.model.Glob;
+import org.globsframework.core.model.MutableGlob;
 import org.globsframework.csv.model.FieldMappingType;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.io.StringReader;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
 public class ImportStructuredCsvTest {
@@ -134,6 +139,254 @@ public class ImportStructuredCsvTest {
         Assert.assertEquals("d", l.get(0).get(SimpleL1.l4).get(L4.d));
     }
 
+    @Test
+    public void wideFanOut() throws IOException {
+        int childCount = 50_000;
+        StringBuilder str = new StringBuilder("aa;bb;cc;dd\n");
+        for (int i = 0; i < childCount; i++) {
+            str.append("parent;b").append(i).append(";c;d\n");
+        }
+        str.append("other;b;c;d\n");
+
+        List<Glob> l = new ArrayList<>();
+        new ImportFile().withSeparator(';')
+                .createComplex(new StringReader(str.toString()), L1.TYPE)
+                .consume(l::add);
+        Assert.assertEquals(2, l.size());
+        Assert.assertEquals("parent", l.get(0).get(L1.aa));
+        Assert.assertEquals("other", l.get(1).get(L1.aa));
+        Glob[] children = l.get(0).get(L1.l2);
+        Assert.assertEquals(childCount, children.length);
+        for (int i = 0; i < childCount; i++) {
+            Assert.assertEquals("b" + i, children[i].get(L2.bb));
+        }
+        Assert.assertEquals(1, children[childCount - 1].get(L2.l3).length);
+        Assert.assertEquals(1, l.get(1).get(L1.l2).length);
+    }
+
+    @Test
+    public void groupOnConvertedKey() throws IOException {
+        String str = "id;name\n" +
+                "1;x\n" +
+                "1.0;y\n" +
+                "2;z\n";
+
+        List<Glob> l = new ArrayList<>();
+        new ImportFile().withSeparator(';')
+                .createComplex(new StringReader(str), KeyL1.TYPE)
+                .consume(l::add);
+        Assert.assertEquals(2, l.size());
+        Assert.assertEquals(1, l.get(0).get(KeyL1.id).intValue());
+        Assert.assertEquals(2, l.get(0).get(KeyL1.children).length);
+        Assert.assertEquals("z", l.get(1).get(KeyL1.children)[0].get(KeyL2.name));
+    }
+
+    @Test
+    public void groupKeyConvertedOnlyOnRawChange() {
+        int[] conversions = {0};
+        ComplexImporter.FieldMapper mapper = new ComplexImporter.FieldMapper();
+        mapper.add(L1.aa, KeyL1.id, value -> {
+            conversions[0]++;
+            return Integer.parseInt(value.trim());
+        });
+        MutableGlob current = KeyL1.TYPE.instantiate();
+        Object[] raw = new Object[1];
+        mapper.copy(current, raw, L1.TYPE.instantiate().set(L1.aa, "1"));
+        Assert.assertEquals(1, conversions[0]);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(mapper.isSame(current, raw, L1.TYPE.instantiate().set(L1.aa, "1")));
+        }
+        Assert.assertEquals(1, conversions[0]);
+        Assert.assertTrue(mapper.isSame(current, raw, L1.TYPE.instantiate().set(L1.aa, " 1")));
+        Assert.assertFalse(mapper.isSame(current, raw, L1.TYPE.instantiate().set(L1.aa, "2")));
+        Assert.assertEquals(3, conversions[0]);
+    }
+
+    @Test
+    public void unsortedGrouping() throws IOException {
+        StringBuilder str = new StringBuilder("id;name\n");
+        for (int i = 0; i < 1000; i++) {
+            str.append(i % 10).append(";n").append(i).append("\n");
+        }
+
+        List<Glob> inMemory = new ArrayList<>();
+        new ImportFile().withSeparator(';').withUnsortedGrouping(10 * 1024 * 1024)
+                .createComplex(new StringReader(str.toString()), KeyL1.TYPE)
+                .consume(inMemory::add);
+        Assert.assertEquals(10, inMemory.size());
+        Assert.assertEquals(0, inMemory.get(0).get(KeyL1.id).intValue());
+        Assert.assertEquals(100, inMemory.get(0).get(KeyL1.children).length);
+        Assert.assertEquals("n10", inMemory.get(0).get(KeyL1.children)[1].get(KeyL2.name));
+
+        List<Glob> spilled = new ArrayList<>();
+        new ImportFile().withSeparator(';').withUnsortedGrouping(2 * 1024)
+                .createComplex(new StringReader(str.toString()), KeyL1.TYPE)
+                .consume(spilled::add);
+        Assert.assertEquals(10, spilled.size());
+        for (Glob glob : spilled) {
+            Glob[] children = glob.get(KeyL1.children);
+            Assert.assertEquals(100, children.length);
+            Assert.assertEquals("n" + glob.get(KeyL1.id), children[0].get(KeyL2.name));
+        }
+    }
+
+    @Test
+    public void unsortedGroupingInterleavedChildren() throws IOException {
+        StringBuilder str = new StringBuilder("aa;bb;cc;dd\n");
+        for (int k = 0; k < 5; k++) {
+            for (int r = 0; r < 50; r++) {
+                for (int b = 0; b < 3; b++) {
+                    str.append("p").append(r).append(";b").append(b).append(";c;d").append(k).append("\n");
+                }
+            }
+        }
+        for (long memoryBudget : new long[]{10 * 1024 * 1024, 1024}) {
+            List<Glob> l = new ArrayList<>();
+            new ImportFile().withSeparator(';').withUnsortedGrouping(memoryBudget)
+                    .createComplex(new StringReader(str.toString()), L1.TYPE)
+                    .consume(l::add);
+            Assert.assertEquals(50, l.size());
+            Set<String> roots = new HashSet<>();
+            for (Glob glob : l) {
+                roots.add(glob.get(L1.aa));
+                Glob[] children = glob.get(L1.l2);
+                Assert.assertEquals(3, children.length);
+                for (int b = 0; b < 3; b++) {
+                    Assert.assertEquals("b" + b, children[b].get(L2.bb));
+                    Glob[] leaves = children[b].get(L2.l3);
+                    Assert.assertEquals(5, leaves.length);
+                    for (int k = 0; k < 5; k++) {
+                        Assert.assertEquals("d" + k, leaves[k].get(L3.dd));
+                    }
+                }
+            }
+            Assert.assertEquals(50, roots.size());
+        }
+    }
+
+    @Test
+    public void unsortedGroupingSpillTypedLinesOnConvertedKey() throws IOException {
+        StringBuilder str = new StringBuilder("id;name;day\n");
+        for (int j = 0; j < 4; j++) {
+            for (int r = 0; r < 500; r++) {
+                str.append(j % 2 == 0 ? "0" + r : String.valueOf(r)).append(";n").append(j)
+                        .append(";2024-01-").append(String.format("%02d", j + 1)).append("\n");
+            }
+        }
+
+        List<Glob> spilled = new ArrayList<>();
+        new ImportFile().withSeparator(';').withTypeInference(100).withUnsortedGrouping(1024)
+                .createComplex(new StringReader(str.toString()), DayL1.TYPE)
+                .consume(spilled::add);
+        Assert.assertEquals(500, spilled.size());
+        Set<Integer> ids = new HashSet<>();
+        for (Glob glob : spilled) {
+            ids.add(glob.get(DayL1.id));
+            Glob[] children = glob.get(DayL1.children);
+            Assert.assertEquals(4, children.length);
+            Assert.assertEquals("n0", children[0].get(DayL2.name));
+            Assert.assertEquals(LocalDate.of(2024, 1, 4), children[3].get(DayL2.day));
+        }
+        Assert.assertEquals(500, ids.size());
+    }
+
+    @Test
+    public void parallelBuild() throws IOException {
+        StringBuilder str = new StringBuilder("id;name\n");
+        for (int i = 0; i < 20_000; i++) {
+            str.append(i / 7).append(";n").append(i).append("\n");
+        }
+
+        List<Glob> sequential = new ArrayList<>();
+        new ImportFile().withSeparator(';')
+                .createComplex(new StringReader(str.toString()), KeyL1.TYPE)
+                .consume(sequential::add);
+
+        List<Glob> parallel = new ArrayList<>();
+        new ImportFile().withSeparator(';').withParallelism(4)
+                .createComplex(new StringReader(str.toString()), KeyL1.TYPE)
+                .consume(parallel::add);
+
+        Assert.assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            Assert.assertEquals(sequential.get(i).get(KeyL1.id), parallel.get(i).get(KeyL1.id));
+            Glob[] expected = sequential.get(i).get(KeyL1.children);
+            Glob[] actual = parallel.get(i).get(KeyL1.children);
+            Assert.assertEquals(expected.length, actual.length);
+            Assert.assertEquals(expected[expected.length - 1].get(KeyL2.name), actual[actual.length - 1].get(KeyL2.name));
+        }
+    }
+
+    @Test
+    public void parallelBuildStopThreadsOnError() throws InterruptedException {
+        StringBuilder str = new StringBuilder("id;name\n");
+        for (int i = 0; i < 20_000; i++) {
+            str.append(i == 10_000 ? "x" : String.valueOf(i / 7)).append(";n").append(i).append("\n");
+        }
+        try {
+            new ImportFile().withSeparator(';').withParallelism(4)
+                    .createComplex(new StringReader(str.toString()), KeyL1.TYPE)
+                    .consume(glob -> {
+                    });
+            Assert.fail("x is not an integer");
+        } catch (RuntimeException e) {
+        }
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("complex-import")) {
+                thread.join(5000);
+                Assert.assertFalse(thread.isAlive());
+            }
+        }
+    }
+
+    public static class DayL1 {
+        public static GlobType TYPE;
+
+        public static IntegerField id;
+
+        @Target(DayL2.class)
+        public static GlobArrayField children;
+
+        static {
+            GlobTypeLoaderFactory.create(DayL1.class).load();
+        }
+    }
+
+    public static class DayL2 {
+        public static GlobType TYPE;
+
+        public static StringField name;
+
+        public static DateField day;
+
+        static {
+            GlobTypeLoaderFactory.create(DayL2.class).load();
+        }
+    }
+
+    public static class KeyL1 {
+        public static GlobType TYPE;
+
+        public static IntegerField id;
+
+        @Target(KeyL2.class)
+        public static GlobArrayField children;
+
+        static {
+            GlobTypeLoaderFactory.create(KeyL1.class).load();
+        }
+    }
+
+    public static class KeyL2 {
+        public static GlobType TYPE;
+
+        public static StringField name;
+
+        static {
+            GlobTypeLoaderFactory.create(KeyL2.class).load();
+        }
+    }
+
     public static class SimpleL1 {
         public static GlobType TYPE;
 
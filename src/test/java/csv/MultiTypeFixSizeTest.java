@@ -60,6 +60,42 @@ public class MultiTypeFixSizeTest {
         Assert.assertEquals(data, writer.toString());
     }
 
+    @Test
+    public void markerOfDifferentSize() {
+        String data =
+                """
+                        HDva1va2
+                        DTLvb11vb12
+                        DTLvb21vb22
+                        HD a1 a2
+                        """;
+        List<Glob> got = new ArrayList<>();
+        new ImportFile().createMulti(new StringReader(data), MixedRoot.TYPE)
+                .consume(got::add);
+        Assert.assertEquals(2, got.size());
+        Assert.assertEquals("va1", got.get(0).get(MixedRoot.header).get(TypeA.val1));
+        Assert.assertEquals(2, got.get(0).getOrEmpty(MixedRoot.details).length);
+        Assert.assertEquals("vb22", got.get(0).getOrEmpty(MixedRoot.details)[1].get(TypeB.val2));
+        Assert.assertEquals(0, got.get(1).getOrEmpty(MixedRoot.details).length);
+    }
+
+    public static class MixedRoot {
+        public static GlobType TYPE;
+
+        @Target(TypeA.class)
+        @CsvHeader_("HD")
+        @ExportColumnSize_(2)
+        public static GlobField header;
+
+        @Target(TypeB.class)
+        @CsvHeader_("DTL")
+        @ExportColumnSize_(3)
+        public static GlobArrayField details;
+
+        static {
+            GlobTypeLoaderFactory.create(MixedRoot.class).load();
+        }
+    }
 
     public static class Root {
         public static GlobType TYPE;
@@ -59,6 +59,141 @@ public class MultiTypeTest {
         Assert.assertEquals(data, writer.toString());
     }
 
+    @Test
+    public void parallelRead() {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            data.append("TYPE_A;a").append(i).append(";x\n");
+            for (int j = 0; j < i % 4; j++) {
+                data.append("TYPE_B;b").append(i).append(";").append(j).append("\n");
+            }
+        }
+        List<Glob> sequential = new ArrayList<>();
+        new ImportFile().withSeparator(';')
+                .createMulti(new StringReader(data.toString()), Root.TYPE)
+                .consume(sequential::add);
+        List<Glob> parallel = new ArrayList<>();
+        new ImportFile().withSeparator(';').withParallelism(4)
+                .createMulti(new StringReader(data.toString()), Root.TYPE)
+                .consume(parallel::add);
+        Assert.assertEquals(5000, sequential.size());
+        Assert.assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            Assert.assertEquals("a" + i, parallel.get(i).get(Root.typeA).get(TypeA.val1));
+            Assert.assertEquals(i % 4, parallel.get(i).getOrEmpty(Root.typeB).length);
+        }
+    }
+
+    @Test
+    public void parallelReadRootsOnly() {
+        StringBuilder data = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            data.append("TYPE_A;a").append(i).append(";x\n");
+        }
+        List<Glob> parallel = new ArrayList<>();
+        new ImportFile().withSeparator(';').withParallelism(4)
+                .createMulti(new StringReader(data.toString()), Root.TYPE)
+                .consume(parallel::add);
+        Assert.assertEquals(5000, parallel.size());
+        for (int i = 0; i < parallel.size(); i++) {
+            Assert.assertEquals("a" + i, parallel.get(i).get(Root.typeA).get(TypeA.val1));
+            Assert.assertEquals(0, parallel.get(i).getOrEmpty(Root.typeB).length);
+        }
+    }
+
+    @Test
+    public void filterSubTypeLines() {
+        String data =
+                "TYPE_A;va1;va2\n" +
+                        "TYPE_B;vb11;vb12\n" +
+                        "TYPE_B;vb21;vb22\n" +
+                        "TYPE_A;a1;a2\n" +
+                        "TYPE_B;ab11;ab12\n";
+        List<Glob> got = new ArrayList<>();
+        new ImportFile().withSeparator(';')
+                .filter(TypeB.val2, ColumnFilter.in(List.of("vb22", "ab12")))
+                .createMulti(new StringReader(data), Root.TYPE)
+                .consume(got::add);
+        Assert.assertEquals(2, got.size());
+        Assert.assertEquals(1, got.get(0).getOrEmpty(Root.typeB).length);
+        Assert.assertEquals("vb21", got.get(0).getOrEmpty(Root.typeB)[0].get(TypeB.val1));
+        Assert.assertEquals("ab11", got.get(1).getOrEmpty(Root.typeB)[0].get(TypeB.val1));
+    }
+
+    @Test
+    public void filteredRootDropItsGroup() {
+        String data =
+                "TYPE_A;va1;va2\n" +
+                        "TYPE_B;vb11;vb12\n" +
+                        "TYPE_B;vb21;vb22\n" +
+                        "TYPE_A;a1;a2\n" +
+                        "TYPE_B;ab11;ab12\n";
+        List<Glob> got = new ArrayList<>();
+        new ImportFile().withSeparator(';')
+                .filter(TypeA.val2, ColumnFilter.in(List.of("a2")))
+                .createMulti(new StringReader(data), Root.TYPE)
+                .consume(got::add);
+        Assert.assertEquals(1, got.size());
+        Assert.assertEquals("a1", got.get(0).get(Root.typeA).get(TypeA.val1));
+        Assert.assertEquals(1, got.get(0).getOrEmpty(Root.typeB).length);
+        Assert.assertEquals("ab11", got.get(0).getOrEmpty(Root.typeB)[0].get(TypeB.val1));
+    }
+
+    @Test
+    public void fullyFilteredGroups() {
+        String data =
+                "TYPE_A;a1;a2\n" +
+                        "TYPE_B;b11;b12\n" +
+                        "TYPE_A;x1;x2\n" +
+                        "TYPE_B;x11;x12\n" +
+                        "TYPE_A;a3;a2\n" +
+                        "TYPE_A;x4;x2\n" +
+                        "TYPE_B;x41;x42\n";
+        List<Glob> got = new ArrayList<>();
+        new ImportFile().withSeparator(';')
+                .filter("val1", ColumnFilter.in(List.of("a1", "b11", "a3")))
+                .createMulti(new StringReader(data), Root.TYPE)
+                .consume(got::add);
+        Assert.assertEquals(2, got.size());
+        Assert.assertEquals("a1", got.get(0).get(Root.typeA).get(TypeA.val1));
+        Assert.assertEquals(1, got.get(0).getOrEmpty(Root.typeB).length);
+        Assert.assertEquals("a3", got.get(1).get(Root.typeA).get(TypeA.val1));
+        Assert.assertEquals(0, got.get(1).getOrEmpty(Root.typeB).length);
+    }
+
+    @Test
+    public void filterOnUnknownColumn() {
+        String data =
+                "TYPE_A;va1;va2\n" +
+                        "TYPE_B;vb11;vb12\n";
+        ImportFile.Importer multi = new ImportFile().withSeparator(';')
+                .filter("val3", ColumnFilter.in(List.of("v")))
+                .createMulti(new StringReader(data), Root.TYPE);
+        try {
+            multi.consume(glob -> {
+            });
+            Assert.fail("no column val3");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause().getMessage().contains("val3"));
+        }
+    }
+
+    @Test
+    public void unknownMarker() {
+        String data =
+                "TYPE_A;va1;va2\n" +
+                        "TYPE_C;vc1;vc2\n";
+        ImportFile.Importer multi = new ImportFile().withSeparator(';')
+                .createMulti(new StringReader(data), Root.TYPE);
+        try {
+            multi.consume(glob -> {
+            });
+            Assert.fail("TYPE_C is not declared");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause().getMessage().contains("TYPE_C"));
+        }
+    }
+
     @Test
     public void nameExcel() {
         String data =
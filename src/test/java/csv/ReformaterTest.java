@@ -3,15 +3,285 @@ package org.globsframework.csv;
 import junit.framework.TestCase;
 import org.globsframework.core.metamodel.GlobType;
 import org.globsframework.core.metamodel.GlobTypeLoaderFactory;
-import org.globsframework.core.metamodel.fields.StringField;
+import org.globsframework.core.metamodel.fields.*;
 import org.globsframework.core.model.Glob;
+import org.globsframework.core.model.MutableGlob;
 import org.globsframework.csv.model.FieldMappingType;
 import org.junit.Assert;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ReformaterTest extends TestCase {
 
+    public void testBatchedAndMemoizedOverride() {
+        int[] calls = {0, 0};
+        Reformater.CustomDataAccessFactory factory = (fieldName, lineType, name, params) -> new Reformater.CustomDataAccess() {
+            public String get(String fieldName, List<String> input, Glob data) {
+                calls[0]++;
+                return input.get(0).equals("none") ? null : input.get(0) + "_" + input.get(1);
+            }
+
+            public List<String> getAll(String fieldName, List<List<String>> inputs, List<Glob> data) {
+                calls[1]++;
+                return inputs.stream().map(i -> i.get(0).equals("none") ? null : i.get(0) + "_" + i.get(1)).toList();
+            }
+        };
+        MemoizedDataAccessFactory memoized = new MemoizedDataAccessFactory(factory, 100);
+        RealReformater reformater = new RealReformater(L1.TYPE, List.of(FieldMappingType.TYPE.instantiate()
+                .set(FieldMappingType.to, "ref")
+                .set(FieldMappingType.from, FieldMappingType.OverrideData.TYPE.instantiate()
+                        .set(FieldMappingType.OverrideData.name, "lookup")
+                        .set(FieldMappingType.OverrideData.inputField, new Glob[]{
+                                FieldMappingType.FromType.TYPE.instantiate().set(FieldMappingType.FromType.from, "a"),
+                                FieldMappingType.FromType.TYPE.instantiate().set(FieldMappingType.FromType.from, "b")}))
+        ), false, Map.of(), memoized);
+        StringField ref = reformater.getResultType().getField("ref").asStringField();
+
+        List<Glob> lines = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            lines.add(L1.TYPE.instantiate().set(L1.a, i % 10 == 9 ? "none" : "a" + i % 10).set(L1.b, "b"));
+        }
+        List<Glob> result = reformater.transformAll(lines);
+        Assert.assertEquals(100, result.size());
+        Assert.assertEquals("a3_b", result.get(13).get(ref));
+        Assert.assertNull(result.get(19).get(ref));
+        Assert.assertEquals(0, calls[0]);
+        Assert.assertEquals(1, calls[1]);
+        Assert.assertEquals(10, memoized.getMisses());
+        Assert.assertEquals(90, memoized.getHits());
+
+        Assert.assertEquals("a4_b", reformater.transform(lines.get(4)).get(ref));
+        Assert.assertNull(reformater.transform(lines.get(9)).get(ref));
+        Assert.assertEquals(0, calls[0]);
+        Assert.assertEquals(92, memoized.getHits());
+    }
+
+    public void testExternalMapping() throws IOException {
+        Path csv = Files.createTempFile("mapping", ".csv");
+        Path compact = Files.createTempFile("mapping", ".bin");
+        try {
+            StringBuilder content = new StringBuilder("code;label\n");
+            for (int i = 0; i < 1000; i++) {
+                content.append("k").append(i).append(";label ").append(i).append("\n");
+            }
+            Files.writeString(csv, content.toString());
+            CompactMappingTable.loadCsv(csv, ';', true).write(compact);
+
+            for (MutableGlob mappingData : List.of(
+                    FieldMappingType.MappingData.TYPE.instantiate()
+                            .set(FieldMappingType.MappingData.externalFile, csv.toString())
+                            .set(FieldMappingType.MappingData.externalSeparator, ";")
+                            .set(FieldMappingType.MappingData.externalWithHeader, true),
+                    FieldMappingType.MappingData.TYPE.instantiate()
+                            .set(FieldMappingType.MappingData.externalCompactFile, compact.toString()))) {
+                RealReformater reformater = new RealReformater(L1.TYPE, List.of(FieldMappingType.TYPE.instantiate()
+                        .set(FieldMappingType.to, "label")
+                        .set(FieldMappingType.from, mappingData
+                                .set(FieldMappingType.MappingData.from, FieldMappingType.FromType.TYPE.instantiate()
+                                        .set(FieldMappingType.FromType.from, "name"))
+                                .set(FieldMappingType.MappingData.mapping, new Glob[]{FieldMappingType.KeyValue.create("k1", "inline")}))));
+                StringField label = reformater.getResultType().getField("label").asStringField();
+                Assert.assertEquals("label 512", reformater.transform(L1.TYPE.instantiate().set(L1.name, "k512")).get(label));
+                Assert.assertEquals("label 0", reformater.transform(L1.TYPE.instantiate().set(L1.name, "k0")).get(label));
+                Assert.assertEquals("inline", reformater.transform(L1.TYPE.instantiate().set(L1.name, "k1")).get(label));
+                Assert.assertNull(reformater.transform(L1.TYPE.instantiate().set(L1.name, "k5000")).get(label));
+            }
+            CompactMappingTable loaded = CompactMappingTable.loadCsv(csv, ';', true);
+            Assert.assertSame(loaded, CompactMappingTable.loadCsv(csv, ';', true));
+            CompactMappingTable.release(csv);
+            Assert.assertNotSame(loaded, CompactMappingTable.loadCsv(csv, ';', true));
+            CompactMappingTable.release(csv);
+            CompactMappingTable.release(compact);
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(compact);
+        }
+    }
+
+    public void testCompactTableSkipNullValues() {
+        Map<String, String> mapping = new HashMap<>();
+        mapping.put("a", "1");
+        mapping.put("b", null);
+        CompactMappingTable table = CompactMappingTable.create(mapping);
+        Assert.assertEquals(1, table.size());
+        Assert.assertEquals("1", table.get("a"));
+        Assert.assertNull(table.get("b"));
+    }
+
+    public void testTypedOutput() {
+        RealReformater reformater = new RealReformater(L2.TYPE, List.of(
+                FieldMappingType.TYPE.instantiate()
+                        .set(FieldMappingType.to, "qty")
+                        .set(FieldMappingType.targetType, "long")
+                        .set(FieldMappingType.from, FieldMappingType.FromType.TYPE.instantiate()
+                                .set(FieldMappingType.FromType.from, "qty")
+                                .set(FieldMappingType.FromType.defaultValueIfEmpty, "0")),
+                FieldMappingType.TYPE.instantiate()
+                        .set(FieldMappingType.to, "total")
+                        .set(FieldMappingType.targetType, "double")
+                        .set(FieldMappingType.from, FieldMappingType.SumData.TYPE.instantiate()
+                                .set(FieldMappingType.SumData.from, new Glob[]{
+                                        FieldMappingType.FromType.TYPE.instantiate().set(FieldMappingType.FromType.from, "qty"),
+                                        FieldMappingType.FromType.TYPE.instantiate().set(FieldMappingType.FromType.from, "price")})),
+                FieldMappingType.TYPE.instantiate()
+                        .set(FieldMappingType.to, "amount")
+                        .set(FieldMappingType.targetType, "bigDecimal")
+                        .set(FieldMappingType.from, FieldMappingType.SumData.TYPE.instantiate()
+                                .set(FieldMappingType.SumData.from, new Glob[]{
+                                        FieldMappingType.FromType.TYPE.instantiate().set(FieldMappingType.FromType.from, "amount"),
+                                        FieldMappingType.FromType.TYPE.instantiate().set(FieldMappingType.FromType.from, "price")})),
+                FieldMappingType.TYPE.instantiate()
+                        .set(FieldMappingType.to, "day")
+                        .set(FieldMappingType.targetType, "date")
+                        .set(FieldMappingType.from, FieldMappingType.FromType.TYPE.instantiate()
+                                .set(FieldMappingType.FromType.from, "day"))));
+
+        GlobType resultType = reformater.getResultType();
+        LongField qty = (LongField) resultType.getField("qty");
+        DoubleField total = (DoubleField) resultType.getField("total");
+        BigDecimalField amount = (BigDecimalField) resultType.getField("amount");
+        DateField day = (DateField) resultType.getField("day");
+        Glob glob = reformater.transform(L2.TYPE.instantiate()
+                .set(L2.qty, 3)
+                .set(L2.price, 1.5)
+                .set(L2.amount, "2.25")
+                .set(L2.day, "2024-03-05"));
+        Assert.assertEquals(3L, glob.get(qty).longValue());
+        Assert.assertEquals(4.5, glob.get(total), 0.0001);
+        Assert.assertEquals(0, new BigDecimal("3.75").compareTo(glob.get(amount)));
+        Assert.assertEquals(LocalDate.of(2024, 3, 5), glob.get(day));
+
+        Glob empty = reformater.transform(L2.TYPE.instantiate().set(L2.price, 2.));
+        Assert.assertEquals(0L, empty.get(qty).longValue());
+        Assert.assertEquals(2., empty.get(total), 0.0001);
+        Assert.assertFalse(empty.isSet(day));
+    }
+
+    public void testExpression() {
+        RealReformater reformater = new RealReformater(L2.TYPE, List.of(
+                expression("total", "double", "qty * price + number(amount)"),
+                expression("label", null, "qty > 2 ? upper(amount & '-' & (day ?? 'none')) : 'small'"),
+                expression("due", "date", "addDays(date(day), 30)"),
+                expression("year", "int", "year(day) ?? 0"),
+                expression("constant", "long", "(2 + 3) * 4 - 1")));
+        GlobType resultType = reformater.getResultType();
+        Glob glob = reformater.transform(L2.TYPE.instantiate()
+                .set(L2.qty, 3)
+                .set(L2.price, 1.5)
+                .set(L2.amount, "2.25")
+                .set(L2.day, "2024-03-05"));
+        Assert.assertEquals(6.75, glob.get((DoubleField) resultType.getField("total")), 0.0001);
+        Assert.assertEquals("2.25-2024-03-05", glob.get((StringField) resultType.getField("label")));
+        Assert.assertEquals(LocalDate.of(2024, 4, 4), glob.get((DateField) resultType.getField("due")));
+        Assert.assertEquals(2024, glob.get((IntegerField) resultType.getField("year")).intValue());
+        Assert.assertEquals(19L, glob.get((LongField) resultType.getField("constant")).longValue());
+
+        Glob other = reformater.transform(L2.TYPE.instantiate().set(L2.qty, 1).set(L2.price, 2.).set(L2.amount, "1"));
+        Assert.assertEquals(3., other.get((DoubleField) resultType.getField("total")), 0.0001);
+        Assert.assertEquals("small", other.get((StringField) resultType.getField("label")));
+        Assert.assertFalse(other.isSet(resultType.getField("due")));
+        Assert.assertEquals(0, other.get((IntegerField) resultType.getField("year")).intValue());
+
+        Assert.assertTrue(Expression.parse("concat('a', 1 + 2) == 'a3' && !false", L2.TYPE, Map.of()).isConstant());
+        Assert.assertEquals("A3", Expression.parse("upper(concat('a', 1 + 2))", L2.TYPE, Map.of()).evaluate(null));
+        Assert.assertEquals(3.5, Expression.parse("7 / 2", L2.TYPE, Map.of()).evaluate(null));
+        Assert.assertNull(Expression.parse("7 / 0", L2.TYPE, Map.of()).evaluate(null));
+        Assert.assertNull(Expression.parse("7 % 0", L2.TYPE, Map.of()).evaluate(null));
+        Assert.assertNull(Expression.parse("7.5 / 0.0", L2.TYPE, Map.of()).evaluate(null));
+        Assert.assertEquals("none", Expression.parse("(7 / (2 - 2)) ?? 'none'", L2.TYPE, Map.of()).evaluate(null));
+        Assert.assertEquals("Infinity", Expression.toText(Double.POSITIVE_INFINITY));
+        Assert.assertEquals("NaN", Expression.toFieldValue(Double.NaN, L2.amount));
+        try {
+            Expression.parse("qty + unknown", L2.TYPE, Map.of());
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("unknown"));
+        }
+    }
+
+    public void testExpressionDivisionByZeroAndNotFinite() {
+        RealReformater reformater = new RealReformater(L2.TYPE, List.of(
+                expression("ratio", null, "price / qty"),
+                expression("rest", "long", "qty % (qty - 3)")));
+        GlobType resultType = reformater.getResultType();
+        Glob glob = reformater.transform(L2.TYPE.instantiate().set(L2.qty, 0).set(L2.price, 1.5));
+        Assert.assertFalse(glob.isSet(resultType.getField("ratio")));
+        Assert.assertFalse(reformater.transform(L2.TYPE.instantiate().set(L2.qty, 3)).isSet(resultType.getField("rest")));
+        Assert.assertEquals("Infinity", reformater.transform(L2.TYPE.instantiate().set(L2.qty, 1).set(L2.price, Double.POSITIVE_INFINITY))
+                .get((StringField) resultType.getField("ratio")));
+
+        RealReformater toInt = new RealReformater(L2.TYPE, List.of(expression("total", "int", "price * 2")));
+        try {
+            toInt.transform(L2.TYPE.instantiate().set(L2.price, Double.NaN));
+            Assert.fail();
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage().contains("price * 2"));
+        }
+    }
+
+    private static Glob expression(String to, String targetType, String expression) {
+        return FieldMappingType.TYPE.instantiate()
+                .set(FieldMappingType.to, to)
+                .set(FieldMappingType.targetType, targetType)
+                .set(FieldMappingType.from, FieldMappingType.ExpressionType.TYPE.instantiate()
+                        .set(FieldMappingType.ExpressionType.expression, expression));
+    }
+
+    public void testSharedCache() throws Exception {
+        ReformaterCache cache = new ReformaterCache(10);
+        Reformater first = cache.get(L2.TYPE, List.of(formatted()), false, Map.of(), RealReformater.DefaultDataAccessFactory.DEFAULT);
+        Reformater second = cache.get(L2.TYPE, List.of(formatted()), false, Map.of(), RealReformater.DefaultDataAccessFactory.DEFAULT);
+        Assert.assertSame(first, second);
+        Assert.assertNotSame(first, cache.get(L2.TYPE, List.of(formatted()), true, Map.of(), RealReformater.DefaultDataAccessFactory.DEFAULT));
+        Assert.assertNotSame(first, cache.get(L1.TYPE, List.of(expression("total", null, "1")), false, Map.of(),
+                RealReformater.DefaultDataAccessFactory.DEFAULT));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(3, cache.getMisses());
+        Assert.assertEquals(3, cache.size());
+
+        StringField price = (StringField) first.getResultType().getField("price");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        Glob glob = first.transform(L2.TYPE.instantiate().set(L2.price, i + 0.5));
+                        if (!new DecimalFormat("0.00").format(i + 0.5).equals(glob.get(price))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Glob formatted() {
+        return FieldMappingType.TYPE.instantiate()
+                .set(FieldMappingType.to, "price")
+                .set(FieldMappingType.from, FieldMappingType.FromType.TYPE.instantiate()
+                        .set(FieldMappingType.FromType.from, "price")
+                        .set(FieldMappingType.FromType.toStringFormater, "0.00"));
+    }
+
     public void testName() {
         RealReformater reformater = new RealReformater(L1.TYPE, List.of(FieldMappingType.TYPE.instantiate()
                         .set(FieldMappingType.to, "aa")
@@ -79,6 +349,22 @@ public class ReformaterTest extends TestCase {
         Assert.assertEquals("titi", glob.get(maps));
     }
 
+    public static class L2 {
+        public static GlobType TYPE;
+
+        public static IntegerField qty;
+
+        public static DoubleField price;
+
+        public static StringField amount;
+
+        public static StringField day;
+
+        static {
+            GlobTypeLoaderFactory.create(L2.class).load();
+        }
+    }
+
     public static class L1 {
         public static GlobType TYPE;
 